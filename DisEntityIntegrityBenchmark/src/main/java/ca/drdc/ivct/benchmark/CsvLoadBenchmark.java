@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.benchmark;
+
+import java.io.IOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.drdc.ivct.fom.base.BaseEntity;
+import ca.drdc.ivct.fom.utils.BaseEntityCSVReader;
+
+/**
+ * Time to load a FAD csv file into BaseEntity objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CsvLoadBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<URL> fadUrls;
+
+    @Setup
+    public void setUp() throws IOException {
+        fadUrls = SyntheticFad.write(size, 1L);
+    }
+
+    @Benchmark
+    public List<BaseEntity> loadCSVFileToBaseEntityList() throws IOException, ParseException {
+        return BaseEntityCSVReader.loadCSVFileToBaseEntityList(fadUrls);
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.benchmark;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import ca.drdc.ivct.fom.base.BaseEntity;
+import ca.drdc.ivct.fom.utils.BaseEntityCSVReader;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.FadVerifier;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.SpatialThresholds;
+import de.fraunhofer.iosb.tc_lib.converter.DisModelConverter;
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Time to match the received entities against the FAD, as done by
+ * BaseEntityIntegrityTC_0001.performTest. Every entity is received
+ * {@link #RECEPTIONS} times, as when the SuT rebroadcasts during the waiting
+ * period.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatchingBenchmark {
+
+    private static final int RECEPTIONS = 2;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<EntityStatePdu> fad;
+    private List<EntityStatePdu> received;
+    private SpatialThresholds thresholds;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        List<BaseEntity> entities = BaseEntityCSVReader.loadCSVFileToBaseEntityList(SyntheticFad.write(size, 1L));
+        fad = new ArrayList<>(entities.size());
+        for (BaseEntity entity : entities) {
+            fad.add(DisModelConverter.rprEntityToDis(entity));
+        }
+        received = new ArrayList<>(entities.size() * RECEPTIONS);
+        for (int i = 0; i < RECEPTIONS; i++) {
+            for (BaseEntity entity : entities) {
+                received.add(DisModelConverter.rprEntityToDis(entity));
+            }
+        }
+        thresholds = new SpatialThresholds(0.001, 0.0001, 0.001, 0.001, 0.0001);
+    }
+
+    @Benchmark
+    public boolean compareAfterWait() {
+        return match(false);
+    }
+
+    @Benchmark
+    public boolean compareOnArrival() {
+        return match(true);
+    }
+
+    private boolean match(boolean compareOnArrival) {
+        FadVerifier verifier = new FadVerifier(fad, thresholds, compareOnArrival, NOPLogger.NOP_LOGGER);
+        for (EntityStatePdu pdu : received) {
+            verifier.accept(pdu);
+        }
+        return verifier.judge();
+    }
+}
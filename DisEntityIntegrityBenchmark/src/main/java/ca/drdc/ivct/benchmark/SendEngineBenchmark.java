@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.drdc.ivct.dis.PduSendEngine;
+import ca.drdc.ivct.dis.RateLimiter;
+import ca.drdc.ivct.dis.config.Host;
+import ca.drdc.ivct.fom.utils.BaseEntityCSVReader;
+import de.fraunhofer.iosb.tc_lib.converter.DisModelConverter;
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * PDU encode and send throughput of the SiSut send engine, to a loopback
+ * socket that is never read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@OperationsPerInvocation(SendEngineBenchmark.BATCH)
+public class SendEngineBenchmark {
+
+    static final int BATCH = 1000;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private DatagramChannel sink;
+    private PduSendEngine engine;
+    private List<EntityStatePdu> pdus;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        sink = DatagramChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        engine = new PduSendEngine(new Host("127.0.0.1", ((InetSocketAddress) sink.getLocalAddress()).getPort()),
+                new RateLimiter(0, 1));
+        pdus = BaseEntityCSVReader.loadCSVFileToBaseEntityList(SyntheticFad.write(size, 1L)).stream()
+                .map(DisModelConverter::rprEntityToDis)
+                .collect(Collectors.toList());
+        pdus.forEach(engine::register);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+        sink.close();
+    }
+
+    @Benchmark
+    public void encode() {
+        for (int i = 0; i < BATCH; i++) {
+            engine.update(next, pdus.get(next));
+            next = (next + 1) % size;
+        }
+    }
+
+    @Benchmark
+    public int send() throws IOException {
+        for (int i = 0; i < BATCH; i++) {
+            engine.offer(next);
+            next = (next + 1) % size;
+        }
+        int sent = 0;
+        while (engine.getQueueSize() > 0) {
+            sent += engine.flush();
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Writes synthetic FAD csv files in the format of baseentity_simple_tc.csv.
+ */
+public final class SyntheticFad {
+
+    private static final String HEADER = "entityId,entityType,description,deadReckoningAlgorithm,worldLocationLat,"
+            + "worldLocationLong,worldLocationHeight,isFrozen,orientation,headingPitchSpeed,accelerationVector,angularVelocity";
+
+    private static final int ENTITIES_PER_APPLICATION = 60000;
+
+    private SyntheticFad() {
+    }
+
+    /**
+     * Write a FAD of the given size in a temporary file, deleted on exit.
+     *
+     * @param size number of entities
+     * @param seed seed of the random values
+     * @return the url of the file, as expected by BaseEntityCSVReader
+     * @throws IOException if the file cannot be written
+     */
+    public static List<URL> write(int size, long seed) throws IOException {
+        File file = File.createTempFile("synthetic_fad_" + size + "_", ".csv");
+        file.deleteOnExit();
+        Random random = new Random(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            for (int i = 0; i < size; i++) {
+                writer.newLine();
+                writer.write(row(i, random));
+            }
+        }
+        return Collections.singletonList(file.toURI().toURL());
+    }
+
+    private static String row(int index, Random random) {
+        boolean rvw = random.nextBoolean();
+        String acceleration = rvw ? vector(random) : "";
+        String angularVelocity = rvw ? vector(random) : "";
+        return String.format(Locale.ROOT, "%d.%d.%d,1.1.225.%d.%d.%d.0,synthetic,%s,%.5f,%.5f,%d,%s,%s,%s,%s,%s",
+                1 + index / ENTITIES_PER_APPLICATION / 1000, 1 + index / ENTITIES_PER_APPLICATION % 1000,
+                1 + index % ENTITIES_PER_APPLICATION,
+                random.nextInt(3), 1 + random.nextInt(4), random.nextInt(4),
+                rvw ? "DRM_RVW" : "DRM_FPW",
+                random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180, random.nextInt(3000),
+                random.nextBoolean() ? "TRUE" : "FALSE",
+                vector(random), vector(random), acceleration, angularVelocity);
+    }
+
+    private static String vector(Random random) {
+        return String.format(Locale.ROOT, "%.3f;%.3f;%.3f", random.nextFloat(), random.nextFloat(), random.nextFloat());
+    }
+}
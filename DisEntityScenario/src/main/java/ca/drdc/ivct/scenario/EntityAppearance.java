@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.scenario;
+
+/**
+ * Bits of the DIS entity appearance record shared by the SiSut, the scenario
+ * generator and the checker.
+ */
+public final class EntityAppearance {
+
+    /**
+     * frozen status bit, a frozen entity does not move
+     */
+    public static final int FROZEN_BIT = 1 << 21;
+
+    private EntityAppearance() {
+    }
+}
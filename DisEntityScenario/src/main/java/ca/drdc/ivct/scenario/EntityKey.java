@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.scenario;
+
+import edu.nps.moves.dis.EntityID;
+import edu.nps.moves.dis.EntityType;
+
+/**
+ * Packs the DIS site/application/entity triple into a single long.
+ *
+ * Each part is an unsigned 16 bits value, the key uses the lower 48 bits and is
+ * never negative. The seven fields of a DIS entity type are packed the same
+ * way, using the whole 64 bits.
+ */
+public final class EntityKey {
+
+    private static final int PART_BITS = 16;
+    private static final int PART_MASK = 0xFFFF;
+
+    private EntityKey() {
+    }
+
+    /**
+     * @param site site number
+     * @param application application number
+     * @param entity entity number
+     * @return the packed key
+     */
+    public static long of(int site, int application, int entity) {
+        return ((long) (site & PART_MASK) << (2 * PART_BITS))
+                | ((long) (application & PART_MASK) << PART_BITS)
+                | (entity & PART_MASK);
+    }
+
+    /**
+     * @param entityID DIS entity identifier
+     * @return the packed key
+     */
+    public static long of(EntityID entityID) {
+        return of(entityID.getSite(), entityID.getApplication(), entityID.getEntity());
+    }
+
+    public static int site(long key) {
+        return (int) (key >>> (2 * PART_BITS)) & PART_MASK;
+    }
+
+    public static int application(long key) {
+        return (int) (key >>> PART_BITS) & PART_MASK;
+    }
+
+    public static int entity(long key) {
+        return (int) key & PART_MASK;
+    }
+
+    /**
+     * @param key packed key
+     * @param shardCount number of shards
+     * @return the shard that judges the entity, between 0 and shardCount - 1
+     */
+    public static int shardOf(long key, int shardCount) {
+        // consecutive entity numbers of an application are spread over the shards
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 32) % shardCount);
+    }
+
+    /**
+     * @param key packed key
+     * @return the identifier as written in the FAD, site.application.entity
+     */
+    public static String toString(long key) {
+        return site(key) + "." + application(key) + "." + entity(key);
+    }
+
+    /**
+     * @param entityType DIS entity type
+     * @return kind, domain, country, category, subcategory, specific and extra packed in a long
+     */
+    public static long typeOf(EntityType entityType) {
+        return ((long) (entityType.getEntityKind() & 0xFF) << 56)
+                | ((long) (entityType.getDomain() & 0xFF) << 48)
+                | ((long) (entityType.getCountry() & 0xFFFF) << 32)
+                | ((long) (entityType.getCategory() & 0xFF) << 24)
+                | ((entityType.getSubcategory() & 0xFF) << 16)
+                | ((entityType.getSpec() & 0xFF) << 8)
+                | (entityType.getExtra() & 0xFF);
+    }
+
+    /**
+     * @param typeKey packed entity type
+     * @return the entity type as written in the FAD, kind.domain.country.category.subcategory.specific.extra
+     */
+    public static String typeToString(long typeKey) {
+        return ((typeKey >>> 56) & 0xFF) + "." + ((typeKey >>> 48) & 0xFF) + "." + ((typeKey >>> 32) & 0xFFFF) + "."
+                + ((typeKey >>> 24) & 0xFF) + "." + ((typeKey >>> 16) & 0xFF) + "." + ((typeKey >>> 8) & 0xFF) + "."
+                + (typeKey & 0xFF);
+    }
+}
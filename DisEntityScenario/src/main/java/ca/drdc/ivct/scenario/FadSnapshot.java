@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.scenario;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Binary snapshot of a FAD: its entities marshalled as entity state PDUs,
+ * with an offset table so that the file can be memory mapped and each entity
+ * decoded when it is read.
+ *
+ * Layout: {@link #MAGIC}, {@link #VERSION}, the digest of the source files
+ * (length and bytes), the number of entities, the offsets of the entities and
+ * of the end of the data relative to the start of the data, then the PDUs.
+ */
+public final class FadSnapshot {
+
+    static final int MAGIC = 0x46414453; // "FADS"
+    /**
+     * version of the layout and of the digest, to be incremented when either
+     * changes or when the conversion of the FAD files into PDUs changes in this
+     * repository
+     */
+    static final int VERSION = 2;
+
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    private FadSnapshot() {
+    }
+
+    /**
+     * @param file the snapshot file, replaced if it exists
+     * @param sourceDigest digest of the source files of the FAD
+     * @param pdus the entities of the FAD
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, byte[] sourceDigest, List<EntityStatePdu> pdus) throws IOException {
+        int count = pdus.size();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(sourceDigest.length).put(sourceDigest).putInt(count);
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                ensureRemaining(channel, buffer, Integer.BYTES);
+                buffer.putInt(offset);
+                offset = Math.addExact(offset, pdus.get(i).getMarshalledSize());
+            }
+            ensureRemaining(channel, buffer, Integer.BYTES);
+            buffer.putInt(offset);
+            for (EntityStatePdu pdu : pdus) {
+                ensureRemaining(channel, buffer, pdu.getMarshalledSize());
+                pdu.marshal(buffer);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Map a snapshot, the entities are decoded each time they are read from the returned list.
+     *
+     * @param file the snapshot file
+     * @param sourceDigest expected digest of the source files, null to accept any
+     * @return the entities of the FAD
+     * @throws IOException if the file cannot be read, is not a snapshot or was compiled from other sources
+     */
+    public static List<EntityStatePdu> map(Path file, byte[] sourceDigest) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to be mapped");
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+                throw new IOException(file + " is not a FAD snapshot of version " + VERSION);
+            }
+            byte[] digest = new byte[mapped.getInt()];
+            mapped.get(digest);
+            if (sourceDigest != null && !Arrays.equals(digest, sourceDigest)) {
+                throw new IOException(file + " was compiled from other FAD files");
+            }
+            int count = mapped.getInt();
+            int[] offsets = new int[count + 1];
+            mapped.asIntBuffer().get(offsets);
+            mapped.position(mapped.position() + offsets.length * Integer.BYTES);
+            ByteBuffer data = mapped.slice();
+            if (data.limit() != offsets[count]) {
+                throw new IOException(file + " is truncated");
+            }
+            return new MappedPduList(data, offsets);
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is not a valid FAD snapshot", e);
+        }
+    }
+
+    /**
+     * write the buffer when it cannot hold the next value, a PDU is at most 8 kB
+     */
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() < needed) {
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * read only list of the PDUs of a mapped snapshot
+     */
+    private static final class MappedPduList extends AbstractList<EntityStatePdu> {
+        private final ByteBuffer data;
+        private final int[] offsets;
+
+        private MappedPduList(ByteBuffer data, int[] offsets) {
+            this.data = data;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public EntityStatePdu get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Entity " + index + " of " + size());
+            }
+            ByteBuffer record = data.duplicate();
+            record.limit(offsets[index + 1]).position(offsets[index]);
+            EntityStatePdu pdu = new EntityStatePdu();
+            pdu.unmarshal(record);
+            return pdu;
+        }
+
+        @Override
+        public int size() {
+            return offsets.length - 1;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.scenario;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Properties;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Directory of {@link FadSnapshot}s named after the SHA-256 digest of their
+ * source files and of the version of their compiler. The first load of a FAD
+ * compiles its snapshot, the following loads of the same unchanged files map
+ * the snapshot without parsing them.
+ *
+ * The directory keeps an index of the snapshot last loaded for each list of
+ * source files, so that when the files change the snapshot of their previous
+ * content is deleted, by this process or a later one. Snapshots of another
+ * {@link FadSnapshot#VERSION} are deleted as well. Processes sharing the
+ * directory may lose each other's index updates, which only leaves a stale
+ * snapshot until its sources are loaded again.
+ */
+public class FadSnapshotCache {
+
+    /**
+     * parses the source files of a FAD into entity state PDUs
+     */
+    @FunctionalInterface
+    public interface FadCompiler {
+        List<EntityStatePdu> compile(List<URL> sources) throws IOException, ParseException;
+    }
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final String INDEX_FILE = "snapshots.properties";
+    private static final String SNAPSHOT_SUFFIX = ".fad";
+    private static final String TEMPORARY_PREFIX = "compiling-";
+
+    private final Path directory;
+    private final String compilerVersion;
+
+    /**
+     * @param directory the cache directory, created when needed
+     * @param compilerVersion version of the conversion of the FAD files into
+     *            PDUs, see {@link #versionOf(Class)}; a snapshot is compiled
+     *            again when it changes
+     */
+    public FadSnapshotCache(Path directory, String compilerVersion) {
+        this.directory = directory;
+        this.compilerVersion = compilerVersion;
+    }
+
+    /**
+     * The implementation version is read from the manifest of the jar of the
+     * class. A build without one, or a change to the conversion code of this
+     * repository, requires a new {@link FadSnapshot#VERSION} instead.
+     *
+     * @param converter class converting the FAD files into PDUs
+     * @return its name and implementation version
+     */
+    public static String versionOf(Class<?> converter) {
+        Package converterPackage = converter.getPackage();
+        String version = converterPackage == null ? null : converterPackage.getImplementationVersion();
+        return converter.getName() + " " + (version == null ? "unversioned" : version);
+    }
+
+    /**
+     * @param sources the FAD files, in order
+     * @param compiler parses the FAD files when they have no snapshot
+     * @return the entities of the FAD
+     * @throws IOException if the files cannot be read or the snapshot cannot be written
+     * @throws ParseException if the FAD files are not valid
+     */
+    public List<EntityStatePdu> load(List<URL> sources, FadCompiler compiler) throws IOException, ParseException {
+        byte[] digest = digest(sources, compilerVersion);
+        Path snapshot = directory.resolve(toHex(digest) + versionSuffix());
+        if (Files.isRegularFile(snapshot)) {
+            try {
+                List<EntityStatePdu> pdus = FadSnapshot.map(snapshot, digest);
+                evictSuperseded(sources, snapshot);
+                return pdus;
+            } catch (IOException e) {
+                // corrupted or partially written by an older run, compiled again below
+                Files.deleteIfExists(snapshot);
+            }
+        }
+        List<EntityStatePdu> pdus = compiler.compile(sources);
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, TEMPORARY_PREFIX, SNAPSHOT_SUFFIX);
+        try {
+            FadSnapshot.write(temporary, digest, pdus);
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        evictSuperseded(sources, snapshot);
+        return pdus;
+    }
+
+    /**
+     * Record the snapshot of the sources in the index, and delete the snapshot
+     * they loaded before unless other sources still use it. The cache stays
+     * usable when the index cannot be read or written.
+     */
+    private synchronized void evictSuperseded(List<URL> sources, Path snapshot) {
+        StringBuilder key = new StringBuilder();
+        for (URL source : sources) {
+            key.append(source.toExternalForm()).append('\n');
+        }
+        Path indexFile = directory.resolve(INDEX_FILE);
+        Properties index = new Properties();
+        if (Files.isRegularFile(indexFile)) {
+            try (InputStream input = Files.newInputStream(indexFile)) {
+                index.load(input);
+            } catch (IOException | IllegalArgumentException e) {
+                // rebuilt from the next loads
+                index.clear();
+            }
+        }
+        String name = snapshot.getFileName().toString();
+        Object previous = index.setProperty(key.toString(), name);
+        if (previous != null && !previous.equals(name) && !index.containsValue(previous)) {
+            deleteSnapshot(directory.resolve(previous.toString()));
+        }
+        if (!name.equals(previous)) {
+            writeIndex(indexFile, index);
+            deleteOtherVersions();
+        }
+    }
+
+    private void writeIndex(Path indexFile, Properties index) {
+        try {
+            Path temporary = Files.createTempFile(directory, INDEX_FILE, ".tmp");
+            try {
+                try (OutputStream output = Files.newOutputStream(temporary)) {
+                    index.store(output, "FAD snapshot of each list of source files");
+                }
+                Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            // the superseded snapshot is then kept until the sources change again
+        }
+    }
+
+    private void deleteOtherVersions() {
+        String suffix = versionSuffix();
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(directory, "*" + SNAPSHOT_SUFFIX)) {
+            for (Path snapshot : snapshots) {
+                String name = snapshot.getFileName().toString();
+                if (!name.endsWith(suffix) && !name.startsWith(TEMPORARY_PREFIX)) {
+                    deleteSnapshot(snapshot);
+                }
+            }
+        } catch (IOException e) {
+            // tried again when another snapshot is compiled
+        }
+    }
+
+    private static void deleteSnapshot(Path snapshot) {
+        try {
+            Files.deleteIfExists(snapshot);
+        } catch (IOException e) {
+            // still mapped on some platforms, it is compiled again if its content comes back
+        }
+    }
+
+    private static String versionSuffix() {
+        return ".v" + FadSnapshot.VERSION + SNAPSHOT_SUFFIX;
+    }
+
+    /**
+     * @param sources the FAD files, in order
+     * @param compilerVersion version of the conversion of the files into PDUs
+     * @return SHA-256 digest of the compiler version and of the content of the files
+     * @throws IOException if a file cannot be read
+     */
+    public static byte[] digest(List<URL> sources, String compilerVersion) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update(compilerVersion.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        for (URL source : sources) {
+            try (InputStream input = new DigestInputStream(source.openStream(), digest)) {
+                while (input.read(buffer) != -1) {
+                    // the digest is updated as the file is read
+                }
+            }
+            // separates the files so that moving a line from one file to the next changes the digest
+            digest.update((byte) 0);
+        }
+        return digest.digest();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.scenario;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import edu.nps.moves.dis.DeadReckoningParameter;
+import edu.nps.moves.dis.EntityID;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.EntityType;
+import edu.nps.moves.dis.Orientation;
+import edu.nps.moves.dis.Vector3Double;
+import edu.nps.moves.dis.Vector3Float;
+
+/**
+ * Generates the entities of a {@link ScenarioSpec} as entity state PDUs.
+ *
+ * Each entity is drawn from its own random generator, seeded from the
+ * scenario seed and the entity index. Any entity can therefore be generated
+ * alone, in any order or in parallel, and the SiSut and the checker get the
+ * same entities without exchanging a file.
+ */
+public class ScenarioGenerator {
+
+    private static final double WGS84_SEMI_MAJOR_AXIS = 6378137.0;
+    private static final double WGS84_ECCENTRICITY_SQUARED = 6.69437999014e-3;
+
+    /**
+     * dead reckoning algorithms that use the acceleration, and the ones that use the angular velocity
+     */
+    private static final int[] ACCELERATED = {4, 5, 8, 9};
+    private static final int[] ROTATING = {3, 4, 7, 8};
+
+    private final ScenarioSpec spec;
+    private final double[] typeThresholds;
+    private final double[] deadReckoningThresholds;
+
+    public ScenarioGenerator(ScenarioSpec spec) {
+        this.spec = spec;
+        this.typeThresholds = cumulative(spec.getEntityTypeWeights());
+        this.deadReckoningThresholds = cumulative(spec.getDeadReckoningWeights());
+    }
+
+    public int size() {
+        return spec.getEntityCount();
+    }
+
+    /**
+     * @param index index of the entity, from 0 to {@link #size()} - 1
+     * @return a new PDU of the entity
+     */
+    public EntityStatePdu generate(int index) {
+        SplittableRandom random = new SplittableRandom(mix(spec.getSeed(), index));
+        EntityStatePdu pdu = new EntityStatePdu();
+
+        EntityID id = pdu.getEntityID();
+        int application = index / spec.getEntitiesPerApplication();
+        id.setSite(spec.getFirstSite() + application / 1000);
+        id.setApplication(spec.getFirstApplication() + application % 1000);
+        id.setEntity(1 + index % spec.getEntitiesPerApplication());
+
+        long[] fields = spec.getEntityTypes()[pick(typeThresholds, random)];
+        EntityType type = pdu.getEntityType();
+        type.setEntityKind((short) fields[0]);
+        type.setDomain((short) fields[1]);
+        type.setCountry((int) fields[2]);
+        type.setCategory((short) fields[3]);
+        type.setSubcategory((short) fields[4]);
+        type.setSpec((short) fields[5]);
+        type.setExtra((short) fields[6]);
+
+        double latitude = Math.toRadians(between(spec.getLatitude(), random));
+        double longitude = Math.toRadians(between(spec.getLongitude(), random));
+        double height = between(spec.getAltitude(), random);
+        double primeVerticalRadius = WGS84_SEMI_MAJOR_AXIS
+                / Math.sqrt(1 - WGS84_ECCENTRICITY_SQUARED * Math.sin(latitude) * Math.sin(latitude));
+        Vector3Double location = pdu.getEntityLocation();
+        location.setX((primeVerticalRadius + height) * Math.cos(latitude) * Math.cos(longitude));
+        location.setY((primeVerticalRadius + height) * Math.cos(latitude) * Math.sin(longitude));
+        location.setZ((primeVerticalRadius * (1 - WGS84_ECCENTRICITY_SQUARED) + height) * Math.sin(latitude));
+
+        Orientation orientation = pdu.getEntityOrientation();
+        orientation.setPsi((float) (random.nextDouble() * 2 * Math.PI - Math.PI));
+        orientation.setTheta((float) (random.nextDouble() * 0.2 - 0.1));
+        orientation.setPhi((float) (random.nextDouble() * 0.2 - 0.1));
+
+        boolean frozen = random.nextDouble() < spec.getFrozenRatio();
+        pdu.setEntityAppearance(frozen ? EntityAppearance.FROZEN_BIT : 0);
+        setVector(pdu.getEntityLinearVelocity(), frozen ? 0 : spec.getMaxSpeed(), random);
+
+        int algorithm = spec.getDeadReckoningAlgorithms()[pick(deadReckoningThresholds, random)];
+        DeadReckoningParameter deadReckoning = pdu.getDeadReckoningParameters();
+        deadReckoning.setDeadReckoningAlgorithm((short) algorithm);
+        setVector(deadReckoning.getEntityLinearAcceleration(), !frozen && contains(ACCELERATED, algorithm) ? 1 : 0, random);
+        setVector(deadReckoning.getEntityAngularVelocity(), !frozen && contains(ROTATING, algorithm) ? 0.1 : 0, random);
+        return pdu;
+    }
+
+    /**
+     * @return the entities, generated in order as the stream is consumed
+     */
+    public Stream<EntityStatePdu> stream() {
+        return IntStream.range(0, size()).mapToObj(this::generate);
+    }
+
+    /**
+     * @return a list view of the entities, each element is generated when it is read
+     */
+    public List<EntityStatePdu> asList() {
+        return new AbstractList<EntityStatePdu>() {
+            @Override
+            public EntityStatePdu get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Entity " + index + " of " + size());
+                }
+                return generate(index);
+            }
+
+            @Override
+            public int size() {
+                return ScenarioGenerator.this.size();
+            }
+        };
+    }
+
+    private static void setVector(Vector3Float vector, double maxNorm, SplittableRandom random) {
+        double scale = maxNorm / Math.sqrt(3);
+        vector.setX((float) (random.nextDouble(-1, 1) * scale));
+        vector.setY((float) (random.nextDouble(-1, 1) * scale));
+        vector.setZ((float) (random.nextDouble(-1, 1) * scale));
+    }
+
+    private static double between(double[] bounds, SplittableRandom random) {
+        return bounds[0] + random.nextDouble() * (bounds[1] - bounds[0]);
+    }
+
+    private static int pick(double[] thresholds, SplittableRandom random) {
+        double value = random.nextDouble() * thresholds[thresholds.length - 1];
+        for (int i = 0; i < thresholds.length - 1; i++) {
+            if (value < thresholds[i]) {
+                return i;
+            }
+        }
+        return thresholds.length - 1;
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] thresholds = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            thresholds[i] = sum;
+        }
+        return thresholds;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * SplitMix64 finalizer of the seed and the index, so that neighbouring
+     * entities get unrelated random sequences
+     */
+    private static long mix(long seed, int index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.scenario;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Parameters of a synthetic scenario, read from a properties file shared by
+ * the SiSut and the checker:
+ * <pre>
+ * seed=42
+ * entityCount=1000000
+ * # first site and application, entities are numbered from 1 in each application
+ * firstSite=1
+ * firstApplication=1
+ * entitiesPerApplication=60000
+ * # entity types (kind.domain.country.category.subcategory.specific.extra) and their weights
+ * entityTypes=1.1.225.1.1.3.0:5,1.2.225.1.1.0.0:3,3.1.225.0.0.0.0:2
+ * # geographic bounds, in degrees and meters
+ * latitude=44.0,46.0
+ * longitude=-77.0,-75.0
+ * altitude=0,3000
+ * # maximum speed in meters per second
+ * maxSpeed=30
+ * # dead reckoning algorithms (DIS enumeration, 2 is FPW, 4 is RVW) and their weights
+ * deadReckoning=2:1,4:1
+ * frozenRatio=0.1
+ * </pre>
+ * Every key is optional.
+ */
+public class ScenarioSpec {
+
+    private final long seed;
+    private final int entityCount;
+    private final int firstSite;
+    private final int firstApplication;
+    private final int entitiesPerApplication;
+    private final long[][] entityTypes;
+    private final double[] entityTypeWeights;
+    private final double[] latitude;
+    private final double[] longitude;
+    private final double[] altitude;
+    private final double maxSpeed;
+    private final int[] deadReckoningAlgorithms;
+    private final double[] deadReckoningWeights;
+    private final double frozenRatio;
+
+    /**
+     * @param properties the scenario properties
+     * @throws IllegalArgumentException if a value cannot be parsed or is out of range
+     */
+    public ScenarioSpec(Properties properties) {
+        seed = Long.parseLong(properties.getProperty("seed", "1").trim());
+        entityCount = Integer.parseInt(properties.getProperty("entityCount", "1000").trim());
+        if (entityCount < 0) {
+            throw new IllegalArgumentException("entityCount must not be negative: " + entityCount);
+        }
+        firstSite = Integer.parseInt(properties.getProperty("firstSite", "1").trim());
+        firstApplication = Integer.parseInt(properties.getProperty("firstApplication", "1").trim());
+        entitiesPerApplication = Integer.parseInt(properties.getProperty("entitiesPerApplication", "60000").trim());
+        if (entitiesPerApplication < 1 || entitiesPerApplication > 65534) {
+            throw new IllegalArgumentException("entitiesPerApplication must be between 1 and 65534");
+        }
+
+        String[] types = properties.getProperty("entityTypes", "1.1.225.1.1.0.0:1").split(",");
+        entityTypes = new long[types.length][];
+        entityTypeWeights = new double[types.length];
+        for (int i = 0; i < types.length; i++) {
+            String[] typeAndWeight = types[i].trim().split(":");
+            String[] fields = typeAndWeight[0].split("\\.");
+            if (fields.length != 7) {
+                throw new IllegalArgumentException("Entity type " + typeAndWeight[0] + " does not have 7 fields");
+            }
+            entityTypes[i] = new long[7];
+            for (int field = 0; field < 7; field++) {
+                entityTypes[i][field] = Long.parseLong(fields[field]);
+            }
+            entityTypeWeights[i] = weight(typeAndWeight);
+        }
+        checkWeights("entityTypes", entityTypeWeights);
+
+        latitude = range(properties, "latitude", "45.0,46.0");
+        longitude = range(properties, "longitude", "-76.0,-75.0");
+        altitude = range(properties, "altitude", "0,1000");
+        maxSpeed = Double.parseDouble(properties.getProperty("maxSpeed", "30").trim());
+
+        String[] algorithms = properties.getProperty("deadReckoning", "2:1").split(",");
+        deadReckoningAlgorithms = new int[algorithms.length];
+        deadReckoningWeights = new double[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            String[] algorithmAndWeight = algorithms[i].trim().split(":");
+            deadReckoningAlgorithms[i] = Integer.parseInt(algorithmAndWeight[0]);
+            deadReckoningWeights[i] = weight(algorithmAndWeight);
+        }
+        checkWeights("deadReckoning", deadReckoningWeights);
+        frozenRatio = Double.parseDouble(properties.getProperty("frozenRatio", "0").trim());
+        if (!(frozenRatio >= 0 && frozenRatio <= 1)) {
+            throw new IllegalArgumentException("frozenRatio must be between 0 and 1: " + frozenRatio);
+        }
+    }
+
+    /**
+     * @param file the scenario properties file
+     * @return the scenario
+     * @throws IOException if the file cannot be read or a value cannot be parsed
+     */
+    public static ScenarioSpec load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            properties.load(input);
+        }
+        try {
+            return new ScenarioSpec(properties);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid scenario " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static double weight(String[] valueAndWeight) {
+        return valueAndWeight.length > 1 ? Double.parseDouble(valueAndWeight[1]) : 1;
+    }
+
+    /**
+     * The weights are drawn from by their cumulative sum, a negative, infinite
+     * or NaN weight or a zero total would skew or break the draw.
+     */
+    private static void checkWeights(String key, double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0 && weight < Double.POSITIVE_INFINITY)) {
+                throw new IllegalArgumentException(key + " weights must be finite and not negative: " + weight);
+            }
+            total += weight;
+        }
+        if (!(total > 0)) {
+            throw new IllegalArgumentException(key + " weights must not all be 0");
+        }
+    }
+
+    private static double[] range(Properties properties, String key, String defaultValue) {
+        String[] bounds = properties.getProperty(key, defaultValue).split(",");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException(key + " must be given as min,max");
+        }
+        return new double[] {Double.parseDouble(bounds[0].trim()), Double.parseDouble(bounds[1].trim())};
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public int getFirstSite() {
+        return firstSite;
+    }
+
+    public int getFirstApplication() {
+        return firstApplication;
+    }
+
+    public int getEntitiesPerApplication() {
+        return entitiesPerApplication;
+    }
+
+    /**
+     * @return per entity type, its 7 fields
+     */
+    public long[][] getEntityTypes() {
+        return entityTypes;
+    }
+
+    public double[] getEntityTypeWeights() {
+        return entityTypeWeights;
+    }
+
+    /**
+     * @return minimum and maximum latitude in degrees
+     */
+    public double[] getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return minimum and maximum longitude in degrees
+     */
+    public double[] getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return minimum and maximum height above the ellipsoid in meters
+     */
+    public double[] getAltitude() {
+        return altitude;
+    }
+
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public int[] getDeadReckoningAlgorithms() {
+        return deadReckoningAlgorithms;
+    }
+
+    public double[] getDeadReckoningWeights() {
+        return deadReckoningWeights;
+    }
+
+    public double getFrozenRatio() {
+        return frozenRatio;
+    }
+}
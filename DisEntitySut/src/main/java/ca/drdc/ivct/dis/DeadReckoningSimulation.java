@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.dis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.nps.moves.dis.DeadReckoningParameter;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.Orientation;
+import edu.nps.moves.dis.Vector3Double;
+import edu.nps.moves.dis.Vector3Float;
+
+import ca.drdc.ivct.scenario.EntityAppearance;
+
+/**
+ * Moves the entities according to their velocity, acceleration and angular
+ * velocity, and emits a new entity state only when the dead reckoned state
+ * seen by the receivers drifts past a threshold, or when the heartbeat
+ * interval expires.
+ *
+ * The true motion integrates the acceleration and the angular velocity; the
+ * receivers extrapolate the last emitted state with the dead reckoning
+ * algorithm of the entity. Body axis algorithms are extrapolated in the world
+ * frame. Frozen entities and static entities do not move and are only
+ * emitted on heartbeats. Meant to be scheduled at a fixed rate of one tick.
+ *
+ * Added entities get their first emission at a random time of the next
+ * heartbeat interval, and updated entities keep their emission schedule, so
+ * changes do not cause a burst.
+ */
+public class DeadReckoningSimulation implements Runnable, EntityRegistry {
+
+    private static Logger logger = LoggerFactory.getLogger(DeadReckoningSimulation.class);
+
+    private static final int DRM_STATIC = 1;
+
+    private final PduSendEngine engine;
+    /**
+     * entities by slot number, null for the removed slots
+     */
+    private final List<SimulatedEntity> entities = new ArrayList<>();
+    private final double positionThreshold;
+    private final double orientationThreshold;
+    private final long heartbeatNanos;
+    private long lastTick;
+
+    /**
+     * @param engine the send engine, the PDUs are registered by the simulation
+     * @param pdus initial state of the entities
+     * @param positionThreshold maximum distance in meters between the true and the dead reckoned location
+     * @param orientationThreshold maximum angle in radians between the true and the dead reckoned orientation
+     * @param heartbeatSec maximum time in seconds between two emissions of an entity, positive
+     * @throws IllegalArgumentException if the heartbeat is not positive
+     */
+    public DeadReckoningSimulation(PduSendEngine engine, List<EntityStatePdu> pdus, double positionThreshold,
+            double orientationThreshold, double heartbeatSec) {
+        this.engine = engine;
+        this.positionThreshold = positionThreshold;
+        this.orientationThreshold = orientationThreshold;
+        this.heartbeatNanos = (long) (heartbeatSec * TimeUnit.SECONDS.toNanos(1));
+        if (!(heartbeatSec > 0) || heartbeatNanos <= 0) {
+            throw new IllegalArgumentException("The heartbeat must be a positive number of seconds: " + heartbeatSec);
+        }
+        this.lastTick = System.nanoTime();
+        for (int i = 0; i < pdus.size(); i++) {
+            // spread the first emissions over one heartbeat so that the heartbeats are not synchronized
+            long firstEmission = lastTick + heartbeatNanos * i / pdus.size();
+            EntityStatePdu pdu = pdus.get(i);
+            put(new SimulatedEntity(pdu, engine.register(pdu), firstEmission - heartbeatNanos));
+        }
+    }
+
+    @Override
+    public int add(EntityStatePdu pdu) {
+        long firstEmission = System.nanoTime() + ThreadLocalRandom.current().nextLong(heartbeatNanos);
+        SimulatedEntity entity = new SimulatedEntity(pdu, engine.register(pdu), firstEmission - heartbeatNanos);
+        put(entity);
+        return entity.slot;
+    }
+
+    @Override
+    public void update(int slot, EntityStatePdu pdu) {
+        // the new state is emitted on the next heartbeat of the entity
+        SimulatedEntity entity = new SimulatedEntity(pdu, slot, entities.get(slot).lastEmission);
+        engine.update(slot, pdu);
+        put(entity);
+    }
+
+    @Override
+    public void remove(int slot) {
+        engine.unregister(slot);
+        entities.set(slot, null);
+    }
+
+    /**
+     * One tick of the simulation. An exception is logged instead of thrown, it
+     * would cancel the scheduling of every later tick.
+     */
+    @Override
+    public void run() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            logger.error("Simulation tick failed", e);
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        double dt = (now - lastTick) / 1e9;
+        lastTick = now;
+        for (SimulatedEntity entity : entities) {
+            if (entity == null) {
+                continue;
+            }
+            entity.move(dt);
+            if (now - entity.lastEmission >= heartbeatNanos || entity.hasDrifted(now)) {
+                entity.emit(now);
+            }
+        }
+        try {
+            engine.flush();
+        } catch (IOException e) {
+            logger.error("Could not send the PDUs", e);
+        }
+    }
+
+    private void put(SimulatedEntity entity) {
+        while (entities.size() <= entity.slot) {
+            entities.add(null);
+        }
+        entities.set(entity.slot, entity);
+    }
+
+    private final class SimulatedEntity {
+        private final EntityStatePdu pdu;
+        private final int slot;
+        private final boolean moving;
+        private final boolean extrapolateAcceleration;
+        private final boolean extrapolateRotation;
+
+        /**
+         * true state
+         */
+        private final double[] location = new double[3];
+        private final double[] velocity = new double[3];
+        private final double[] acceleration = new double[3];
+        private final double[] orientation = new double[3];
+        private final double[] angularVelocity = new double[3];
+
+        /**
+         * last emitted state, seen by the receivers
+         */
+        private final double[] emittedLocation = new double[3];
+        private final double[] emittedVelocity = new double[3];
+        private final double[] emittedOrientation = new double[3];
+        private long lastEmission;
+
+        private SimulatedEntity(EntityStatePdu pdu, int slot, long lastEmission) {
+            this.pdu = pdu;
+            this.slot = slot;
+            this.lastEmission = lastEmission;
+
+            DeadReckoningParameter deadReckoning = pdu.getDeadReckoningParameters();
+            int algorithm = deadReckoning.getDeadReckoningAlgorithm();
+            // DRM_RPW, DRM_RVW, DRM_RPB and DRM_RVB rotate, DRM_RVW, DRM_FVW, DRM_RVB and DRM_FVB accelerate
+            this.moving = algorithm > DRM_STATIC && (pdu.getEntityAppearance() & EntityAppearance.FROZEN_BIT) == 0;
+            this.extrapolateRotation = algorithm == 3 || algorithm == 4 || algorithm == 7 || algorithm == 8;
+            this.extrapolateAcceleration = algorithm == 4 || algorithm == 5 || algorithm == 8 || algorithm == 9;
+
+            Vector3Double pduLocation = pdu.getEntityLocation();
+            location[0] = pduLocation.getX();
+            location[1] = pduLocation.getY();
+            location[2] = pduLocation.getZ();
+            copy(pdu.getEntityLinearVelocity(), velocity);
+            copy(deadReckoning.getEntityLinearAcceleration(), acceleration);
+            copy(deadReckoning.getEntityAngularVelocity(), angularVelocity);
+            Orientation pduOrientation = pdu.getEntityOrientation();
+            orientation[0] = pduOrientation.getPsi();
+            orientation[1] = pduOrientation.getTheta();
+            orientation[2] = pduOrientation.getPhi();
+            remember();
+        }
+
+        private void move(double dt) {
+            if (!moving) {
+                return;
+            }
+            for (int axis = 0; axis < 3; axis++) {
+                location[axis] += velocity[axis] * dt + 0.5 * acceleration[axis] * dt * dt;
+                velocity[axis] += acceleration[axis] * dt;
+                orientation[axis] += angularVelocity[axis] * dt;
+            }
+        }
+
+        /**
+         * @return true if the dead reckoned state of the receivers is past a threshold
+         */
+        private boolean hasDrifted(long now) {
+            if (!moving) {
+                return false;
+            }
+            double t = (now - lastEmission) / 1e9;
+            double distanceSquared = 0;
+            double angle = 0;
+            for (int axis = 0; axis < 3; axis++) {
+                double extrapolated = emittedLocation[axis] + emittedVelocity[axis] * t;
+                if (extrapolateAcceleration) {
+                    extrapolated += 0.5 * acceleration[axis] * t * t;
+                }
+                double delta = location[axis] - extrapolated;
+                distanceSquared += delta * delta;
+
+                double extrapolatedAngle = emittedOrientation[axis];
+                if (extrapolateRotation) {
+                    extrapolatedAngle += angularVelocity[axis] * t;
+                }
+                angle = Math.max(angle, Math.abs(Math.IEEEremainder(orientation[axis] - extrapolatedAngle, 2 * Math.PI)));
+            }
+            return distanceSquared > positionThreshold * positionThreshold || angle > orientationThreshold;
+        }
+
+        private void emit(long now) {
+            lastEmission = now;
+            remember();
+
+            Vector3Double pduLocation = pdu.getEntityLocation();
+            pduLocation.setX(location[0]);
+            pduLocation.setY(location[1]);
+            pduLocation.setZ(location[2]);
+            Vector3Float pduVelocity = pdu.getEntityLinearVelocity();
+            pduVelocity.setX((float) velocity[0]);
+            pduVelocity.setY((float) velocity[1]);
+            pduVelocity.setZ((float) velocity[2]);
+            Orientation pduOrientation = pdu.getEntityOrientation();
+            pduOrientation.setPsi((float) orientation[0]);
+            pduOrientation.setTheta((float) orientation[1]);
+            pduOrientation.setPhi((float) orientation[2]);
+            pdu.setTimestamp(relativeTimestamp());
+
+            engine.update(slot, pdu);
+            engine.offer(slot);
+        }
+
+        private void remember() {
+            System.arraycopy(location, 0, emittedLocation, 0, 3);
+            System.arraycopy(velocity, 0, emittedVelocity, 0, 3);
+            System.arraycopy(orientation, 0, emittedOrientation, 0, 3);
+        }
+    }
+
+    private static void copy(Vector3Float vector, double[] target) {
+        target[0] = vector.getX();
+        target[1] = vector.getY();
+        target[2] = vector.getZ();
+    }
+
+    /**
+     * @return the DIS relative timestamp: units of 3600/2^31 seconds past the hour, lowest bit 0
+     */
+    private static long relativeTimestamp() {
+        long millisPastHour = System.currentTimeMillis() % TimeUnit.HOURS.toMillis(1);
+        return (millisPastHour * Integer.MAX_VALUE / TimeUnit.HOURS.toMillis(1)) << 1;
+    }
+}
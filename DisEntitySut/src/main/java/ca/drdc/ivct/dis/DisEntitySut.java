@@ -17,29 +17,33 @@
 package ca.drdc.ivct.dis;
 
 import java.io.IOException;
+import java.net.URL;
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.Collectors;
 
-import ca.drdc.ivct.fom.utils.WeaponFireCSVReader;
-import ca.drdc.ivct.fom.warfare.WeaponFire;
 import edu.nps.moves.dis.EntityStatePdu;
-import edu.nps.moves.dis.FirePdu;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ca.drdc.ivct.dis.config.DisSutConfig;
+import ca.drdc.ivct.scenario.FadSnapshotCache;
+import ca.drdc.ivct.scenario.FadSnapshotCache.FadCompiler;
+import ca.drdc.ivct.scenario.ScenarioGenerator;
+import ca.drdc.ivct.scenario.ScenarioSpec;
 import ca.drdc.ivct.fom.base.BaseEntity;
 import ca.drdc.ivct.fom.utils.BaseEntityCSVReader;
 import de.fraunhofer.iosb.tc_lib.converter.DisModelConverter;
-import de.fraunhofer.iosb.tc_lib.dis.DisSender;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class DisEntitySut {
 
     private static final int PERIOD = 6;
+    private static final long TICK_MS = 10;
     private static Logger logger = LoggerFactory.getLogger(DisEntitySut.class);
 
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
@@ -50,20 +54,67 @@ public class DisEntitySut {
             new DisEntitySut(config);
         } catch (IOException | ParseException e) {
             logger.error("Could not load the testcase");
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid configuration: {}", e.getMessage());
         }
     }
 
     public DisEntitySut(DisSutConfig config) throws IOException, ParseException {
-        DisSender sender = new DisSender(config.getBroadCastNetwork().getIpAdress(),
-                config.getBroadCastNetwork().getPort());
+        PduSendEngine engine = new PduSendEngine(config.getBroadCastNetwork(),
+                new RateLimiter(config.getSendRate(), config.getSendBurst()));
 
-        List<EntityStatePdu> pdus = BaseEntityCSVReader.loadCSVFileToBaseEntityList(config.getTestcaseList()).stream()
+        FadCompiler loader = DisEntitySut::loadTestcases;
+        if (config.getFadCacheDir() != null) {
+            FadSnapshotCache cache = new FadSnapshotCache(config.getFadCacheDir().toPath(),
+                    FadSnapshotCache.versionOf(DisModelConverter.class));
+            loader = urls -> cache.load(urls, DisEntitySut::loadTestcases);
+        }
+
+        boolean watch = config.isWatch() && config.getScenarioFile() == null;
+        List<EntityStatePdu> pdus;
+        if (config.getScenarioFile() != null) {
+            ScenarioGenerator generator = new ScenarioGenerator(ScenarioSpec.load(config.getScenarioFile().toPath()));
+            logger.info("Generating the {} entities of the scenario {}", generator.size(), config.getScenarioFile());
+            pdus = generator.asList();
+        } else if (watch) {
+            // the entities are published by the reloader
+            pdus = Collections.emptyList();
+        } else {
+            pdus = loader.compile(config.getTestcaseList());
+        }
+
+        Runnable task;
+        EntityRegistry registry;
+        if (config.isSimulation()) {
+            // entities move and are sent when they drift from their dead reckoned state
+            DeadReckoningSimulation simulation = new DeadReckoningSimulation(engine, pdus, config.getPositionThreshold(),
+                    config.getOrientationThreshold(), config.getHeartbeat());
+            task = simulation;
+            registry = simulation;
+        } else {
+            pdus.forEach(engine::register);
+
+            // every PDU is sent once per period, spread over the ticks of the period
+            PeriodicBroadcast broadcast = new PeriodicBroadcast(engine, SECONDS.toMillis(PERIOD), TICK_MS);
+            task = broadcast;
+            registry = broadcast;
+        }
+
+        if (watch) {
+            // changes of the testcase files are applied on the scheduler thread, between two ticks
+            TestcaseReloader reloader = new TestcaseReloader(config.getTestcaseDir().toPath(), loader, registry, scheduler);
+            reloader.start();
+            logger.info("Watching the testcase directory {}", config.getTestcaseDir());
+        } else if (config.isWatch()) {
+            logger.warn("The testcase directory is not watched when a scenario is generated");
+        }
+
+        scheduler.scheduleAtFixedRate(task, 0, TICK_MS, MILLISECONDS);
+    }
+
+    private static List<EntityStatePdu> loadTestcases(List<URL> testcaseList) throws IOException, ParseException {
+        return BaseEntityCSVReader.loadCSVFileToBaseEntityList(testcaseList).stream()
                 .map(DisModelConverter::rprEntityToDis)
                 .collect(Collectors.toList());
-
-        scheduler.scheduleAtFixedRate(()->
-            pdus.stream().forEach(sender::sendPdu),
-        0, PERIOD, SECONDS);
-        
     }
 }
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.dis;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * The entities published by the SiSut, changed while they are published.
+ *
+ * Entities are known by the slot number of their PDU in the send engine. The
+ * methods are called on the thread that publishes the entities.
+ */
+public interface EntityRegistry {
+
+    /**
+     * Start publishing an entity.
+     *
+     * @param pdu initial state of the entity
+     * @return the slot number of the entity
+     */
+    int add(EntityStatePdu pdu);
+
+    /**
+     * Replace the state of an entity, the new state is sent on its next turn.
+     *
+     * @param slot slot number of the entity
+     * @param pdu new state of the entity
+     */
+    void update(int slot, EntityStatePdu pdu);
+
+    /**
+     * Stop publishing an entity.
+     *
+     * @param slot slot number of the entity
+     */
+    void remove(int slot);
+}
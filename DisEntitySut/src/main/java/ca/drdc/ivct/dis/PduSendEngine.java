@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.dis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.drdc.ivct.dis.config.Host;
+import edu.nps.moves.dis.Pdu;
+
+/**
+ * Sends pre-encoded PDUs through a non-blocking datagram channel.
+ *
+ * Each registered PDU is marshalled once into its own direct buffer, its slot.
+ * Slots are queued with {@link #offer(int)} and written by {@link #flush()} as
+ * long as the rate limiter and the socket send buffer allow it; what is left
+ * stays queued for the next flush instead of being dropped. Slots of removed
+ * PDUs are skipped and reused by the next registrations.
+ */
+public class PduSendEngine implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(PduSendEngine.class);
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final DatagramChannel channel;
+    private final InetSocketAddress target;
+    private final RateLimiter rateLimiter;
+
+    private ByteBuffer[] slots = new ByteBuffer[INITIAL_CAPACITY];
+    private int slotCount;
+
+    /**
+     * slots of the removed PDUs, as a stack
+     */
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+
+    /**
+     * queued slots, as a ring of slot numbers; a slot is queued at most once
+     */
+    private int[] queue = new int[INITIAL_CAPACITY];
+    private boolean[] queued = new boolean[INITIAL_CAPACITY];
+    private int queueHead;
+    private int queueSize;
+
+    private long sentCount;
+
+    /**
+     * @param target address and port the PDUs are sent to
+     * @param rateLimiter limits the number of PDUs sent per second
+     * @throws IOException if the channel cannot be opened
+     */
+    public PduSendEngine(Host target, RateLimiter rateLimiter) throws IOException {
+        this.target = new InetSocketAddress(target.getIpAdress(), target.getPort());
+        this.rateLimiter = rateLimiter;
+        this.channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+        channel.configureBlocking(false);
+    }
+
+    /**
+     * Encode a PDU in a new slot, or in the slot of a removed PDU.
+     *
+     * @param pdu the PDU
+     * @return the slot number of the PDU
+     */
+    public synchronized int register(Pdu pdu) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == slots.length) {
+                grow();
+            }
+            slot = slotCount++;
+        }
+        slots[slot] = encode(pdu, null);
+        return slot;
+    }
+
+    /**
+     * Remove the PDU of a slot, it is not sent anymore even if already queued.
+     *
+     * @param slot slot number of the PDU
+     */
+    public synchronized void unregister(int slot) {
+        if (slots[slot] == null) {
+            return;
+        }
+        slots[slot] = null;
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Encode a new state of a PDU in its slot, the buffer is reused when large enough.
+     *
+     * @param slot slot number of the PDU
+     * @param pdu the new state
+     */
+    public synchronized void update(int slot, Pdu pdu) {
+        slots[slot] = encode(pdu, slots[slot]);
+    }
+
+    /**
+     * Queue a slot for sending, ignored if the slot is already queued or removed.
+     *
+     * @param slot slot number of the PDU
+     */
+    public synchronized void offer(int slot) {
+        if (queued[slot] || slots[slot] == null) {
+            return;
+        }
+        queued[slot] = true;
+        queue[(queueHead + queueSize) % queue.length] = slot;
+        queueSize++;
+    }
+
+    /**
+     * Send the queued slots allowed by the rate limiter, without blocking.
+     *
+     * @return number of PDUs sent
+     * @throws IOException if the channel fails
+     */
+    public synchronized int flush() throws IOException {
+        int permits = rateLimiter.tryAcquire(queueSize);
+        int sent = 0;
+        while (sent < permits && queueSize > 0) {
+            int slot = queue[queueHead];
+            ByteBuffer buffer = slots[slot];
+            if (buffer == null) {
+                // removed since it was queued
+                queued[slot] = false;
+                queueHead = (queueHead + 1) % queue.length;
+                queueSize--;
+                continue;
+            }
+            buffer.rewind();
+            if (channel.send(buffer, target) == 0) {
+                // socket send buffer is full, retry on next flush
+                break;
+            }
+            queued[slot] = false;
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+            sent++;
+        }
+        rateLimiter.release(permits - sent);
+        sentCount += sent;
+        return sent;
+    }
+
+    /**
+     * @return number of slots, removed PDUs included
+     */
+    public synchronized int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * @return number of registered PDUs
+     */
+    public synchronized int getRegisteredCount() {
+        return slotCount - freeCount;
+    }
+
+    /**
+     * @return number of queued PDUs not sent yet
+     */
+    public synchronized int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @return number of PDUs sent since the creation of the engine
+     */
+    public synchronized long getSentCount() {
+        return sentCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer encode(Pdu pdu, ByteBuffer reusable) {
+        int size = pdu.getMarshalledSize();
+        pdu.setLength(size);
+        ByteBuffer buffer = reusable;
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(size);
+        }
+        buffer.clear();
+        pdu.marshal(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void grow() {
+        int capacity = slots.length * 2;
+        slots = Arrays.copyOf(slots, capacity);
+        queued = Arrays.copyOf(queued, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+        int[] newQueue = new int[capacity];
+        for (int i = 0; i < queueSize; i++) {
+            newQueue[i] = queue[(queueHead + i) % queue.length];
+        }
+        queue = newQueue;
+        queueHead = 0;
+        logger.debug("Send engine capacity increased to {} PDUs", capacity);
+    }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.dis;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Queues every slot of the send engine once per period, spread evenly over
+ * the ticks of the period, then flushes the engine. Added entities join the
+ * rotation and updated ones are sent with their new state on their turn, so
+ * changes do not cause a burst.
+ *
+ * Meant to be scheduled at a fixed rate of one tick.
+ */
+public class PeriodicBroadcast implements Runnable, EntityRegistry {
+
+    private static Logger logger = LoggerFactory.getLogger(PeriodicBroadcast.class);
+
+    private final PduSendEngine engine;
+    private final long ticksPerPeriod;
+    private long tick;
+    private int nextSlot;
+
+    /**
+     * @param engine the send engine
+     * @param periodMs time to send every slot once, in milliseconds
+     * @param tickMs time between two runs, in milliseconds
+     */
+    public PeriodicBroadcast(PduSendEngine engine, long periodMs, long tickMs) {
+        this.engine = engine;
+        this.ticksPerPeriod = Math.max(1, periodMs / tickMs);
+    }
+
+    @Override
+    public int add(EntityStatePdu pdu) {
+        return engine.register(pdu);
+    }
+
+    @Override
+    public void update(int slot, EntityStatePdu pdu) {
+        engine.update(slot, pdu);
+    }
+
+    @Override
+    public void remove(int slot) {
+        engine.unregister(slot);
+    }
+
+    /**
+     * One tick of the broadcast. An exception is logged instead of thrown, it
+     * would cancel the scheduling of every later tick.
+     */
+    @Override
+    public void run() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            logger.error("Broadcast tick failed", e);
+        }
+    }
+
+    private void tick() {
+        int slotCount = engine.getSlotCount();
+        tick++;
+        // the slots due by the end of this tick, slot 0 goes out on the first tick
+        long due = (slotCount * tick + ticksPerPeriod - 1) / ticksPerPeriod;
+        for (; nextSlot < due && nextSlot < slotCount; nextSlot++) {
+            engine.offer(nextSlot);
+        }
+        if (tick >= ticksPerPeriod) {
+            tick = 0;
+            nextSlot = 0;
+        }
+        try {
+            engine.flush();
+        } catch (IOException e) {
+            logger.error("Could not send the PDUs", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.dis;
+
+/**
+ * Token bucket limiting the number of PDUs sent per second.
+ *
+ * The bucket holds at most burst tokens and is refilled at the configured rate,
+ * callers take the tokens they can get without blocking.
+ */
+public class RateLimiter {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final double permitsPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond number of PDUs per second, 0 or less for no limit
+     * @param burst maximum number of PDUs sent at once after an idle time
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / NANOS_PER_SECOND;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * @return true if the rate is not limited
+     */
+    public boolean isUnlimited() {
+        return permitsPerNano <= 0;
+    }
+
+    /**
+     * Take up to the wanted number of permits, without waiting.
+     *
+     * @param wanted number of permits wanted
+     * @return number of permits granted, between 0 and wanted
+     */
+    public synchronized int tryAcquire(int wanted) {
+        if (isUnlimited()) {
+            return wanted;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+        int granted = (int) Math.min(wanted, Math.floor(tokens));
+        tokens -= granted;
+        return granted;
+    }
+
+    /**
+     * Give back permits that were acquired but not used.
+     *
+     * @param permits number of permits
+     */
+    public synchronized void release(int permits) {
+        if (!isUnlimited()) {
+            tokens = Math.min(burst, tokens + permits);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.dis;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.drdc.ivct.scenario.EntityKey;
+import ca.drdc.ivct.scenario.FadSnapshotCache.FadCompiler;
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Publishes the entities of the testcase files and applies the changes of the
+ * testcase directory while they are published.
+ *
+ * A changed file is loaded again on its own and compared entity by entity with
+ * what it published: entities added to the file are added to the registry,
+ * removed ones are removed and only the entities whose encoded state changed
+ * are updated. The watch thread only loads the files, the changes are applied
+ * on the executor of the registry.
+ */
+public class TestcaseReloader implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(TestcaseReloader.class);
+
+    /**
+     * time without event in the directory before the changed files are loaded,
+     * editors write a file in several steps
+     */
+    private static final long QUIET_MS = 200;
+
+    private final Path directory;
+    private final FadCompiler loader;
+    private final EntityRegistry registry;
+    private final Executor executor;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * published entities of each file, by entity key; only used on the executor
+     */
+    private final Map<Path, Map<Long, Published>> published = new HashMap<>();
+
+    /**
+     * @param directory the testcase directory
+     * @param loader loads the entities of a file
+     * @param registry the published entities
+     * @param executor runs the changes on the thread of the registry
+     * @throws IOException if the directory cannot be watched
+     */
+    public TestcaseReloader(Path directory, FadCompiler loader, EntityRegistry registry, Executor executor)
+            throws IOException {
+        this.directory = directory;
+        this.loader = loader;
+        this.registry = registry;
+        this.executor = executor;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        this.thread = new Thread(this::watch, "testcase-watcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Publish the entities of the testcase files, then watch the directory.
+     * Must be called before the registry is used by its executor.
+     */
+    public void start() {
+        for (Path file : listFiles()) {
+            List<EntityStatePdu> pdus = load(file);
+            if (pdus != null) {
+                apply(file, pdus);
+            }
+        }
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Set<Path> changed = new TreeSet<>();
+                boolean overflow = false;
+                // collect the events until the directory is quiet
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            changed.add(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        logger.error("The testcase directory {} cannot be watched anymore", directory);
+                        return;
+                    }
+                    key = watchService.poll(QUIET_MS, TimeUnit.MILLISECONDS);
+                }
+                if (overflow) {
+                    // events were lost, every file is loaded again
+                    changed.addAll(listFiles());
+                    execute("remove the deleted testcase files", this::removeDeletedFiles);
+                }
+                reload(changed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Testcase directory watch closed");
+        }
+    }
+
+    private void reload(Set<Path> changed) {
+        for (Path file : changed) {
+            if (isHidden(file)) {
+                continue;
+            }
+            if (Files.isRegularFile(file)) {
+                List<EntityStatePdu> pdus = load(file);
+                if (pdus != null) {
+                    execute("apply the changes of " + file, () -> apply(file, pdus));
+                }
+            } else {
+                execute("remove the entities of " + file, () -> apply(file, Collections.emptyList()));
+            }
+        }
+    }
+
+    /**
+     * Run a change on the executor of the registry, a failure is logged since
+     * the executor would drop it.
+     */
+    private void execute(String action, Runnable change) {
+        executor.execute(() -> {
+            try {
+                change.run();
+            } catch (RuntimeException e) {
+                logger.error("Could not {}", action, e);
+            }
+        });
+    }
+
+    /**
+     * @return the entities of the file, null if it cannot be loaded and its published entities are kept
+     */
+    private List<EntityStatePdu> load(Path file) {
+        try {
+            return loader.compile(Collections.singletonList(file.toUri().toURL()));
+        } catch (IOException | ParseException | RuntimeException e) {
+            // possibly a file being written, it is loaded again on its next change
+            logger.warn("Could not load the testcase file {}, its entities are kept: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Compare the entities of a file with the ones it published and change the registry.
+     */
+    private void apply(Path file, List<EntityStatePdu> pdus) {
+        Map<Long, Published> previous = published.remove(file);
+        if (previous == null) {
+            previous = Collections.emptyMap();
+        }
+        Map<Long, Published> current = new HashMap<>(pdus.size() * 2);
+        int added = 0;
+        int updated = 0;
+        for (EntityStatePdu pdu : pdus) {
+            long key = EntityKey.of(pdu.getEntityID());
+            if (current.containsKey(key)) {
+                logger.warn("Entity {} is listed twice in {}, only the first is published", pdu.getEntityID(), file);
+                continue;
+            }
+            byte[] state = encode(pdu);
+            Published entity = previous.remove(key);
+            if (entity == null) {
+                entity = new Published(registry.add(pdu), state);
+                added++;
+            } else if (!Arrays.equals(entity.state, state)) {
+                registry.update(entity.slot, pdu);
+                entity.state = state;
+                updated++;
+            }
+            current.put(key, entity);
+        }
+        int removed = previous.size();
+        for (Published entity : previous.values()) {
+            registry.remove(entity.slot);
+        }
+        if (!current.isEmpty()) {
+            published.put(file, current);
+        }
+        if (added + updated + removed > 0) {
+            logger.info("{}: {} entities added, {} updated, {} removed", file.getFileName(), added, updated, removed);
+        }
+    }
+
+    private void removeDeletedFiles() {
+        for (Path file : new ArrayList<>(published.keySet())) {
+            if (!Files.isRegularFile(file)) {
+                apply(file, Collections.emptyList());
+            }
+        }
+    }
+
+    private List<Path> listFiles() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && !isHidden(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Could not list the testcase directory {}", directory, e);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * @return true for the swap and lock files of the editors
+     */
+    private static boolean isHidden(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(".") || name.endsWith("~");
+    }
+
+    private static byte[] encode(EntityStatePdu pdu) {
+        ByteBuffer buffer = ByteBuffer.allocate(pdu.getMarshalledSize());
+        pdu.marshal(buffer);
+        return buffer.array();
+    }
+
+    private static final class Published {
+        private final int slot;
+        private byte[] state;
+
+        private Published(int slot, byte[] state) {
+            this.slot = slot;
+            this.state = state;
+        }
+    }
+}
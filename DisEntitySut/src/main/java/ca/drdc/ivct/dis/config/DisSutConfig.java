@@ -37,6 +37,20 @@ public class DisSutConfig {
     private static final String TEST_CASE_DIR = "testcaseDir";
     private static final String BROADCAST_NETWORK = "broadCastNetwork";
     private static final String DEFAULT_TEST_CASE_DIR = "testcases";
+    private static final String SEND_RATE = "sendRate";
+    private static final String SEND_BURST = "sendBurst";
+    private static final String DEFAULT_SEND_RATE = "0";
+    private static final String DEFAULT_SEND_BURST = "64";
+    private static final String SIMULATION = "simulation";
+    private static final String POSITION_THRESHOLD = "positionThreshold";
+    private static final String ORIENTATION_THRESHOLD = "orientationThreshold";
+    private static final String HEARTBEAT = "heartbeat";
+    private static final String DEFAULT_POSITION_THRESHOLD = "1.0";
+    private static final String DEFAULT_ORIENTATION_THRESHOLD = "0.05236";
+    private static final String DEFAULT_HEARTBEAT = "5";
+    private static final String SCENARIO = "scenario";
+    private static final String FAD_CACHE = "fadCache";
+    private static final String WATCH = "watch";
 
     /**
      * host to listen for
@@ -48,11 +62,57 @@ public class DisSutConfig {
      */
     private Host broadCastNetwork;
 
+    /**
+     * directory of the files containing the entities
+     */
+    private File testcaseDir;
+
     /**
      * List of files containing the entities
      */
     private ArrayList<URL> testcaseList;
 
+    /**
+     * maximum number of PDUs sent per second, 0 for no limit
+     */
+    private double sendRate;
+
+    /**
+     * maximum number of PDUs sent at once
+     */
+    private int sendBurst;
+
+    /**
+     * move the entities and send an update only when they drift from their dead reckoned state
+     */
+    private boolean simulation;
+
+    /**
+     * dead reckoning thresholds, in meters and radians
+     */
+    private double positionThreshold;
+    private double orientationThreshold;
+
+    /**
+     * maximum time between two updates of an entity, in seconds
+     */
+    private double heartbeat;
+
+    /**
+     * synthetic scenario properties file sent instead of the testcase files, null for none
+     */
+    private File scenarioFile;
+
+    /**
+     * directory of the compiled snapshots of the testcase files, null to parse them on every start
+     */
+    private File fadCacheDir;
+
+    /**
+     * apply the changes of the testcase directory while the entities are published
+     */
+    private boolean watch;
+
     /**
      * load all configuration for the Sut
      * @param fileName config file from the resource folder
@@ -76,6 +136,44 @@ public class DisSutConfig {
             logger.error("Error parsing the broadCastNetwork" + configFile.toString(), e);
         }
 
+        try {
+            sendRate = Double.parseDouble(properties.getProperty(SEND_RATE, DEFAULT_SEND_RATE));
+            sendBurst = Integer.parseInt(properties.getProperty(SEND_BURST, DEFAULT_SEND_BURST));
+        } catch (NumberFormatException e) {
+            logger.error("Error parsing the sendRate or sendBurst" + configFile.toString(), e);
+            sendRate = Double.parseDouble(DEFAULT_SEND_RATE);
+            sendBurst = Integer.parseInt(DEFAULT_SEND_BURST);
+        }
+
+        simulation = Boolean.parseBoolean(properties.getProperty(SIMULATION, "false"));
+        try {
+            positionThreshold = Double.parseDouble(properties.getProperty(POSITION_THRESHOLD, DEFAULT_POSITION_THRESHOLD));
+            orientationThreshold = Double.parseDouble(properties.getProperty(ORIENTATION_THRESHOLD, DEFAULT_ORIENTATION_THRESHOLD));
+            heartbeat = Double.parseDouble(properties.getProperty(HEARTBEAT, DEFAULT_HEARTBEAT));
+        } catch (NumberFormatException e) {
+            logger.error("Error parsing the dead reckoning thresholds" + configFile.toString(), e);
+            positionThreshold = Double.parseDouble(DEFAULT_POSITION_THRESHOLD);
+            orientationThreshold = Double.parseDouble(DEFAULT_ORIENTATION_THRESHOLD);
+            heartbeat = Double.parseDouble(DEFAULT_HEARTBEAT);
+        }
+        if (!(heartbeat > 0)) {
+            logger.error("The heartbeat must be a positive number of seconds, {} is used instead of {}",
+                    DEFAULT_HEARTBEAT, heartbeat);
+            heartbeat = Double.parseDouble(DEFAULT_HEARTBEAT);
+        }
+
+        String scenario = properties.getProperty(SCENARIO, "").trim();
+        if (!scenario.isEmpty()) {
+            scenarioFile = new File(scenario);
+        }
+
+        String fadCache = properties.getProperty(FAD_CACHE, "").trim();
+        if (!fadCache.isEmpty()) {
+            fadCacheDir = new File(fadCache);
+        }
+
+        watch = Boolean.parseBoolean(properties.getProperty(WATCH, "false"));
+
         String testcaseDir = properties.getProperty(TEST_CASE_DIR, DEFAULT_TEST_CASE_DIR);
 
         URL testcaseDirFileUrl = this.getClass().getResource("/" + testcaseDir + "/");
@@ -85,6 +183,7 @@ public class DisSutConfig {
         } catch (URISyntaxException e) {
             testcaseDirFile = new File(testcaseDirFileUrl.getPath());
         }
+        this.testcaseDir = testcaseDirFile;
 
         testcaseList = new ArrayList<>();
         if (testcaseDirFile.isDirectory()) {
@@ -105,6 +204,10 @@ public class DisSutConfig {
         }
     }
     
+    public File getTestcaseDir() {
+        return testcaseDir;
+    }
+
     public List<URL> getTestcaseList() {
         return testcaseList;
     }
@@ -117,4 +220,40 @@ public class DisSutConfig {
         return broadCastNetwork;
     }
 
+    public double getSendRate() {
+        return sendRate;
+    }
+
+    public int getSendBurst() {
+        return sendBurst;
+    }
+
+    public boolean isSimulation() {
+        return simulation;
+    }
+
+    public double getPositionThreshold() {
+        return positionThreshold;
+    }
+
+    public double getOrientationThreshold() {
+        return orientationThreshold;
+    }
+
+    public double getHeartbeat() {
+        return heartbeat;
+    }
+
+    public File getScenarioFile() {
+        return scenarioFile;
+    }
+
+    public File getFadCacheDir() {
+        return fadCacheDir;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
 }
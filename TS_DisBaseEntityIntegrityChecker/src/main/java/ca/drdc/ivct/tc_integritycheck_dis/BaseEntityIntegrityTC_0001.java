@@ -16,30 +16,54 @@
  *******************************************************************************/
 package ca.drdc.ivct.tc_integritycheck_dis;
 
+import static ca.drdc.ivct.tc_lib_integritycheck_dis.FadVerifier.LINE_SEPARATOR;
+
+import java.io.File;
 import java.io.IOException;
-import java.text.ParseException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
-import ca.drdc.ivct.fom.utils.BaseEntityEqualUtils;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.CheckingPipelines;
 import ca.drdc.ivct.tc_lib_integritycheck_dis.CountdownTimer;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.FadSource;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.FadVerifier;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.IntegrityCheckOptions;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.PduCaptureReader;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.PduCaptureWriter;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.PduReceiver;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.RunMetrics;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.ShardVerdict;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.ShardVerdictMerge;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.SoakMonitor;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.SpatialThresholds;
+import ca.drdc.ivct.tc_lib_integritycheck_dis.VerdictReportWriter;
+import edu.nps.moves.dis.EntityStatePdu;
 import org.slf4j.Logger;
 
-import ca.drdc.ivct.fom.base.BaseEntity;
-import ca.drdc.ivct.fom.base.structs.EntityIdentifierStruct;
-import ca.drdc.ivct.fom.utils.BaseEntityCSVReader;
 import de.fraunhofer.iosb.tc_lib.TcFailed;
 import de.fraunhofer.iosb.tc_lib.TcInconclusive;
-import de.fraunhofer.iosb.tc_lib.converter.DisModelConverter;
 import de.fraunhofer.iosb.tc_lib.dis.DISAbstractTestCase;
 
 public class BaseEntityIntegrityTC_0001 extends DISAbstractTestCase {
 
-    private List<BaseEntity> fad;
-    private static final String LINE_SEPARATOR = "---------------------------------------------------------------------";
+    private FadSource fadSource;
+    private List<EntityStatePdu> fad;
+    private SpatialThresholds thresholds;
+    private FadVerifier verifier;
+    private int verifiedPduCount;
+    private RunMetrics metrics;
+    private final List<VerdictReportWriter> reportWriters = new ArrayList<>();
+    private final List<File> reportFiles = new ArrayList<>();
+    private CheckingPipelines pipelines;
+    private PduCaptureWriter captureWriter;
+    private File replayFile;
+    private PduReceiver receiver;
+    private SoakMonitor soakMonitor;
+    private String runId;
+    private long sampleSeed;
+    private ShardVerdictMerge shardMerge;
     private Logger logger;
 
     @Override
@@ -63,21 +87,68 @@ public class BaseEntityIntegrityTC_0001 extends DISAbstractTestCase {
     protected void preambleAction(Logger logger) throws TcInconclusive {
 
         this.logger = logger;
-        // Load all files in test cases folder. This constitutes the federation
-        // agreement document (FAD)
-        try {
-            this.fad = BaseEntityCSVReader.loadCSVFileToBaseEntityList(super.param.getFadUrls());
-            if (fad.isEmpty()) {
-                throw new TcInconclusive("The FAD is empty.");
+        metrics = new RunMetrics();
+        runId = getClass().getSimpleName() + "-" + System.currentTimeMillis();
+        sampleSeed = IntegrityCheckOptions.getSampleSeed();
+        long phaseStart = System.nanoTime();
+
+        if (IntegrityCheckOptions.isShardMerge()) {
+            // no entity is judged, the partial verdicts of the shards are combined
+            shardMerge = ShardVerdictMerge.fromOptions(logger);
+            // the shards wait the same period, after loading the FAD and before judging
+            shardMerge.await(IntegrityCheckOptions.getShardMergeTimeout(super.param.getWaitingPeriod()));
+            return;
+        }
+
+        fadSource = FadSource.fromOptions(logger);
+        File pipelineFile = IntegrityCheckOptions.getPipelineFile();
+        // the DIS plugin receiver keeps every PDU, a soak would run out of memory
+        if (IntegrityCheckOptions.getSoakDuration() > 0 && IntegrityCheckOptions.getReceivePort() <= 0
+                && pipelineFile == null && IntegrityCheckOptions.getReplayFile() == null) {
+            throw new TcInconclusive("The soak monitoring requires integritycheck.receivePort");
+        }
+        if (pipelineFile != null) {
+            pipelines = new CheckingPipelines(metrics, getClass().getSimpleName(), runId, logger);
+            pipelines.open(pipelineFile, super.param.getSpatialValueThreshold(), fadSource,
+                    (pipelineVerifier, name) -> configureVerifier(pipelineVerifier, runId + "-" + name + "-report.ndjson"));
+        } else {
+            // Load all files in test cases folder, or generate the scenario. This
+            // constitutes the federation agreement document (FAD)
+            this.fad = fadSource.select(super.param.getFadUrls());
+            thresholds = loadThresholds(super.param.getSpatialValueThreshold());
+            try {
+                verifier = new FadVerifier(fad, thresholds, IntegrityCheckOptions.isIncremental(),
+                        IntegrityCheckOptions.getMaxUnknownEntities(), logger);
+            } catch (IllegalArgumentException e) {
+                throw new TcInconclusive(e.getMessage(), e);
             }
-        } catch (IOException | ParseException e) {
-            throw new TcInconclusive("Could not load the FAD.", e);
+            configureVerifier(verifier, runId + "-report.ndjson");
+        }
+        verifiedPduCount = 0;
+        metrics.recordPhase(RunMetrics.Phase.FAD_LOAD, System.nanoTime() - phaseStart);
+
+        replayFile = IntegrityCheckOptions.getReplayFile();
+        if (replayFile != null) {
+            phaseStart = System.nanoTime();
+            replayCapture();
+            metrics.recordPhase(RunMetrics.Phase.WAITING, System.nanoTime() - phaseStart);
+            return;
         }
+        openCapture();
+        openReceiver();
 
-        logger.info("Send entity from the to this DIS federate. You have 10 seconds");
+        logger.info("Send entity from the to this DIS federate. You have {} seconds", super.param.getWaitingPeriod());
 
-        // Let five second to client to discover the base Entity.
-        new CountdownTimer(super.param.getWaitingPeriod(), logger).run();
+        phaseStart = System.nanoTime();
+        // Entities are recorded as they arrive. In incremental mode they are also
+        // verified on arrival, and in incremental or sampling mode the waiting
+        // period is only an upper bound.
+        boolean stopWhenComplete = IntegrityCheckOptions.isIncremental() || IntegrityCheckOptions.getSampleSize() > 0;
+        new CountdownTimer(super.param.getWaitingPeriod(), logger, () -> {
+            verifyReceivedEntities();
+            return stopWhenComplete && isComplete();
+        }).run();
+        metrics.recordPhase(RunMetrics.Phase.WAITING, System.nanoTime() - phaseStart);
     }
 
     /**
@@ -89,115 +160,416 @@ public class BaseEntityIntegrityTC_0001 extends DISAbstractTestCase {
      */
     @Override
     protected void performTest(Logger logger) throws TcInconclusive, TcFailed {
-        // Gather received entities
-        List<BaseEntity> receivedEntities = super.disManager.getReceivedEntities().stream()
-                .map(DisModelConverter::disEntityToRpr)
-                .collect(Collectors.toList());
-
-        if (receivedEntities.isEmpty()) {
-            logger.warn("No entity received");
-            throw new TcInconclusive("No BaseEntity objects found on the RTI bus. A system "
-                    + "under test must create discoverable BaseEntity objects before attempting the test.");
-        }
-        
-        // take only the first instance of the received each Entities
-        Map<EntityIdentifierStruct, BaseEntity> receivedEntitiesWithoutDuplicate = new HashMap<>();
-        receivedEntities.stream().forEachOrdered(
-                receivedEntitie -> receivedEntitiesWithoutDuplicate.computeIfAbsent(receivedEntitie.getEntityIdentifier(),
-                key -> receivedEntitie ));
-
-        // Traverse the discovered BaseEntity objects.
-        boolean testPassed = true;
-
-        for (BaseEntity fadEntity : fad) {
-            
-            boolean isEntityIdentifierEqual = receivedEntitiesWithoutDuplicate.containsKey(fadEntity.getEntityIdentifier());
-
-            if (!isEntityIdentifierEqual){
-                testPassed = false;
-                logger.info("\n"+LINE_SEPARATOR+"\nFAIL: BaseEntity from FAD with identifier {} found no identity match in " +
-                        "discovered Base Entities", fadEntity.getEntityIdentifier()+"\n"+LINE_SEPARATOR);
+        if (shardMerge != null) {
+            performShardMerge();
+            return;
+        }
+        if (pipelines != null) {
+            performPipelineTest();
+            return;
+        }
+        long phaseStart = System.nanoTime();
+        long soakNanos = 0;
+        String verdict = "INCONCLUSIVE";
+        boolean soak = IntegrityCheckOptions.getSoakDuration() > 0;
+        if (soak && replayFile != null) {
+            logger.warn("The soak monitoring is ignored when replaying a capture");
+            soak = false;
+        }
+        try {
+            // Gather the entities received since the last verification
+            if (replayFile == null) {
+                if (!soak) {
+                    closeReceiver();
+                }
+                verifyReceivedEntities();
+            }
+
+            if (verifier.getReceivedCount() == 0) {
+                logger.warn("No entity received");
+                throw new TcInconclusive("No BaseEntity objects found on the RTI bus. A system "
+                        + "under test must create discoverable BaseEntity objects before attempting the test.");
+            }
+
+            boolean testPassed = verifier.judge();
+            metrics.setSampleEstimate(verifier.getSampleEstimate());
+
+            if (!testPassed && IntegrityCheckOptions.isNearestMatch()) {
+                verifier.logNearestFadMatches(thresholds.getWorldLocation());
+            }
+
+            if (testPassed && soak) {
+                long soakStart = System.nanoTime();
+                testPassed = runSoak();
+                soakNanos = System.nanoTime() - soakStart;
+                metrics.recordPhase(RunMetrics.Phase.SOAK, soakNanos);
+            }
+
+            if (!testPassed) {
+                verdict = "FAILED";
+                throw new TcFailed("Test failed due to errors in entity(ies) or absent/unrecognized entity(ies).");
             } else {
-                BaseEntity receivedBaseEntity = receivedEntitiesWithoutDuplicate.get(fadEntity.getEntityIdentifier());
-                boolean isEntityTypeEqual = fadEntity.getEntityType().equals(receivedBaseEntity.getEntityType());
-                boolean isSpatialEqual = isSpatialEqual(fadEntity, receivedBaseEntity);
-                testPassed = isEntityTypeEqual && isSpatialEqual;
+                verdict = "PASSED";
+                logger.info("\n"+LINE_SEPARATOR+ "\n" +
+                        "TEST IS COMPLETED SUCCESFULLY.\n" +LINE_SEPARATOR);
             }
+        } finally {
+            metrics.recordPhase(RunMetrics.Phase.COMPARE, System.nanoTime() - phaseStart - soakNanos);
+            closeReceiver();
+            closeCapture();
+            closeReport();
+            writeMetrics(verdict);
+            writeShardVerdict(verdict);
         }
+    }
 
-        // test if received the good amount of entities according to the fad
-        boolean isNumberOfEntityReceivedGood = isNumberOfEntityReceivedGood(receivedEntitiesWithoutDuplicate.size(), fad.size());
-        testPassed = testPassed && isNumberOfEntityReceivedGood;
-
-        if (!testPassed) {
-            throw new TcFailed("Test failed due to errors in entity(ies) or absent/unrecognized entity(ies).");
-        } else {
+    /**
+     * Judge every pipeline in parallel, the test passes when all of them pass.
+     *
+     * @throws TcInconclusive if a pipeline received nothing and none failed
+     * @throws TcFailed       if a pipeline failed
+     */
+    private void performPipelineTest() throws TcInconclusive, TcFailed {
+        long phaseStart = System.nanoTime();
+        try {
+            if (replayFile == null) {
+                closeReceiver();
+                verifyReceivedEntities();
+            }
+            if (IntegrityCheckOptions.getSoakDuration() > 0) {
+                logger.warn("The soak monitoring is ignored when judging pipelines");
+            }
+            pipelines.judge();
             logger.info("\n"+LINE_SEPARATOR+ "\n" +
                     "TEST IS COMPLETED SUCCESFULLY.\n" +LINE_SEPARATOR);
+        } finally {
+            metrics.recordPhase(RunMetrics.Phase.COMPARE, System.nanoTime() - phaseStart);
+            closeReceiver();
+            closeCapture();
+            closeReport();
+            writeMetrics(pipelines.getVerdict());
+            writeShardVerdict(pipelines.getVerdict());
         }
     }
 
     /**
-     *  test if the spatial parameter of the received baseentity match the fad
+     * Combine the partial verdicts of the shards into the verdict of the run.
      *
-     *  Note orientation && velocity && deadReckoning is not taken into account in the final judgment
+     * @throws TcInconclusive if a shard has no verdict or an inconclusive one and none failed
+     * @throws TcFailed       if a shard failed
+     */
+    private void performShardMerge() throws TcInconclusive, TcFailed {
+        shardMerge.judge(new File(IntegrityCheckOptions.getReportDir(), runId + "-report.ndjson"));
+        logger.info("\n"+LINE_SEPARATOR+ "\n" +
+                "TEST IS COMPLETED SUCCESFULLY.\n" +LINE_SEPARATOR);
+    }
+
+    /**
+     * Configure a verifier from the options before any entity is received.
      *
-     * @param fadEntity entity from the fad
-     * @param receivedBaseEntity entity received
-     * @return true if it match
+     * @param configuredVerifier the verifier
+     * @param reportName name of its verdict report file
+     * @throws TcInconclusive if the shard or the sample options are invalid
      */
-    private boolean isSpatialEqual(BaseEntity fadEntity, BaseEntity receivedBaseEntity){
-        boolean testPassed = true;
-        BaseEntityEqualUtils equalUtils = new BaseEntityEqualUtils(super.param.getSpatialValueThreshold());
+    private void configureVerifier(FadVerifier configuredVerifier, String reportName) throws TcInconclusive {
+        configuredVerifier.setConsoleFailureLimit(IntegrityCheckOptions.getConsoleFailures());
+        selectJudgedEntities(configuredVerifier);
+        openReport(configuredVerifier, reportName);
+    }
 
-        boolean worldLocationEqual = equalUtils.worlLocationEqual(fadEntity.getSpatialRepresentation().getWorldLocation(), receivedBaseEntity.getSpatialRepresentation().getWorldLocation());
+    /**
+     * Judge only the entities of the shard of this process when the run is
+     * sharded, and only a random sample of them when a sample size is given.
+     *
+     * @param judgingVerifier the verifier
+     * @throws TcInconclusive if the shard index is not one of the shards
+     */
+    private void selectJudgedEntities(FadVerifier judgingVerifier) throws TcInconclusive {
+        int shardCount = IntegrityCheckOptions.getShardCount();
+        if (shardCount > 1) {
+            int shardIndex = IntegrityCheckOptions.getShardIndex();
+            if (shardIndex < 0 || shardIndex >= shardCount) {
+                throw new TcInconclusive("The shard index " + shardIndex + " is not between 0 and " + (shardCount - 1));
+            }
+            ShardVerdict.requireRunId();
+            judgingVerifier.setShard(shardIndex, shardCount);
+            logger.info("Judging the shard {} of {}: {} FAD entities", shardIndex, shardCount,
+                    judgingVerifier.getJudgedCount());
+        }
 
-        boolean frozenEqual = fadEntity.getSpatialRepresentation().isFrozen() == receivedBaseEntity.getSpatialRepresentation().isFrozen();
+        int sampleSize = IntegrityCheckOptions.getSampleSize();
+        if (sampleSize <= 0) {
+            return;
+        }
+        try {
+            judgingVerifier.setSample(sampleSize, sampleSeed, IntegrityCheckOptions.getSampleConfidence());
+        } catch (IllegalArgumentException e) {
+            // including a confidence that is not a number
+            throw new TcInconclusive("Invalid " + IntegrityCheckOptions.SAMPLE_CONFIDENCE + ": " + e.getMessage(), e);
+        }
+        if (judgingVerifier.isSampling()) {
+            logger.info("Judging a sample of {} FAD entities, seed {}", sampleSize, sampleSeed);
+        }
+    }
 
+    /**
+     * @param values the thresholds of TcParam.json by name
+     * @return the thresholds
+     * @throws TcInconclusive if a threshold is missing or invalid
+     */
+    private static SpatialThresholds loadThresholds(Map<String, ? extends Number> values) throws TcInconclusive {
+        try {
+            return SpatialThresholds.from(values);
+        } catch (IllegalArgumentException e) {
+            throw new TcInconclusive("Invalid thresholds in TcParam.json: " + e.getMessage(), e);
+        }
+    }
 
-        // The rest of the spatialIntegrity check is still performed but does not affect the final judgment.
-        boolean orientationEqual = equalUtils.orientationEqual(fadEntity.getSpatialRepresentation().getOrientation(),  receivedBaseEntity.getSpatialRepresentation().getOrientation());
-        boolean velocityEqual = equalUtils.velocityEqual(fadEntity.getSpatialRepresentation().getVelocityVector(), receivedBaseEntity.getSpatialRepresentation().getVelocityVector());
-        boolean deadReckonEqual = equalUtils.baseEntityDeadReckonEqual(fadEntity.getSpatialRepresentation(),receivedBaseEntity.getSpatialRepresentation());
+    /**
+     * @return true when every FAD entity was received or the judgment can no longer pass
+     */
+    private boolean isComplete() {
+        return pipelines == null ? verifier.isComplete() : pipelines.isComplete();
+    }
 
+    /**
+     * Verify the entities received since the previous call, only the first
+     * instance of each entity is taken into account by the verifier.
+     */
+    private void verifyReceivedEntities() {
+        if (receiver != null) {
+            receiver.drain((receivedPdu, receiveNanos) -> {
+                capture(receiveNanos, receivedPdu);
+                verify(receivedPdu, receiveNanos);
+            });
+            return;
+        }
+        // the plugin keeps every PDU it receives, outside of the bounds of the verifier, use receivePort to avoid it
+        List<EntityStatePdu> receivedEntities = super.disManager.getReceivedEntities();
+        int receivedSize = receivedEntities.size();
+        // entities are timestamped when they are polled, at most 100 ms after their reception
+        long receiveNanos = System.nanoTime();
+        for (int i = verifiedPduCount; i < receivedSize; i++) {
+            EntityStatePdu receivedPdu = receivedEntities.get(i);
+            capture(receiveNanos, receivedPdu);
+            verify(receivedPdu, receiveNanos);
+        }
+        verifiedPduCount = receivedSize;
+    }
 
-        if(!(orientationEqual && velocityEqual && deadReckonEqual)){
-            logger.warn("WARNING: BaseEntity from FAD with identifier {} does match the received entity but some spatial properties that does not affect the final judgment mismatch: \n"
-                    + "Orientation [{}]; Velocity [{}], DeadReckoning [{}]",fadEntity.getEntityIdentifier(), orientationEqual, velocityEqual, deadReckonEqual);
+    private void verify(EntityStatePdu receivedPdu, long receiveNanos) {
+        if (pipelines != null) {
+            pipelines.route(receivedPdu, receiveNanos);
+            return;
+        }
+        if (soakMonitor != null) {
+            // every update is verified by the monitor, none is a discarded duplicate
+            soakMonitor.update(receivedPdu, receiveNanos);
+            metrics.recordPdu(receiveNanos, false);
+            return;
         }
+        int outcome = verifier.accept(receivedPdu, receiveNanos);
+        metrics.recordPdu(receiveNanos, outcome == FadVerifier.DUPLICATE);
+        if (outcome == FadVerifier.FAD_MATCH) {
+            metrics.recordFadMatch(receiveNanos);
+        }
+    }
 
-        if (!worldLocationEqual || !frozenEqual ) {
-            testPassed = false;
-            logger.info("\n"+LINE_SEPARATOR+ "\nFAIL: BaseEntity from FAD with identifier {} does not match the received entity: \n"+LINE_SEPARATOR
-                    + "worldLocationEqual [{}]; frozenEqual [{}]",fadEntity.getEntityIdentifier(), worldLocationEqual, frozenEqual);
+    /**
+     * Keep verifying every update received against the FAD for the soak duration.
+     *
+     * @return true if no entity timed out, drifted or appeared during the run
+     */
+    private boolean runSoak() {
+        int duration = IntegrityCheckOptions.getSoakDuration();
+        logger.info("\n"+LINE_SEPARATOR+"\nSOAK: Monitoring every update for {} seconds\n"+LINE_SEPARATOR, duration);
+        soakMonitor = new SoakMonitor(verifier, thresholds,
+                TimeUnit.SECONDS.toNanos(IntegrityCheckOptions.getSoakHeartbeatTimeout()),
+                TimeUnit.SECONDS.toNanos(IntegrityCheckOptions.getSoakWindow()),
+                IntegrityCheckOptions.getMaxUnknownEntities(), IntegrityCheckOptions.getConsoleFailures(), logger);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        try {
+            while (System.nanoTime() < end) {
+                Thread.sleep(100);
+                verifyReceivedEntities();
+                soakMonitor.advance(System.nanoTime());
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Soak monitoring interrupted", e);
+            Thread.currentThread().interrupt();
+        }
+        closeReceiver();
+        verifyReceivedEntities();
+        soakMonitor.logSummary();
+        boolean passed = !soakMonitor.isDegraded();
+        soakMonitor = null;
+        return passed;
+    }
+
+    /**
+     * Verify the entities of a capture instead of the ones received, with their
+     * original receive times.
+     *
+     * @throws TcInconclusive if the capture cannot be read
+     */
+    private void replayCapture() throws TcInconclusive {
+        logger.info("Replaying the entities captured in {}, the SuT is not listened to", replayFile);
+        try (PduCaptureReader reader = new PduCaptureReader(replayFile)) {
+            long replayed = reader.replay(this::verify);
+            logger.info("{} captured entity states replayed", replayed);
+        } catch (IOException e) {
+            throw new TcInconclusive("Could not replay the capture " + replayFile, e);
+        }
+    }
+
+    /**
+     * Receive the entity states on the test suite own socket when a port is
+     * given, instead of the DIS plugin receiver. The port is owned by the
+     * socket, the plugin receiver listens on another port and gets none of them.
+     *
+     * @throws TcInconclusive if the socket cannot be bound
+     */
+    private void openReceiver() throws TcInconclusive {
+        int port = IntegrityCheckOptions.getReceivePort();
+        if (port <= 0) {
+            return;
+        }
+        try {
+            receiver = new PduReceiver(port, IntegrityCheckOptions.getExerciseId(),
+                    IntegrityCheckOptions.getShardIndex(), IntegrityCheckOptions.getShardCount(), logger);
+            logger.info("Receiving the entity states on UDP port {}", port);
+        } catch (IOException e) {
+            throw new TcInconclusive("Could not receive on UDP port " + port
+                    + ", it must not be used by another socket such as the DIS plugin receiver", e);
+        }
+    }
+
+    /**
+     * Stop receiving, the entity states already decoded are still verified.
+     */
+    private void closeReceiver() {
+        if (receiver == null || !receiver.isOpen()) {
+            return;
+        }
+        try {
+            receiver.close();
+        } catch (IOException e) {
+            logger.warn("Could not close the PDU receiver", e);
+        }
+        logger.info("{} datagrams received, {} PDUs dropped as not EntityState PDUs of the exercise, {} malformed",
+                receiver.getDatagramCount(), receiver.getFilteredCount(), receiver.getMalformedCount());
+    }
+
+    /**
+     * Start capturing the received entities when a capture file is given, a
+     * failure is only logged.
+     */
+    private void openCapture() {
+        File captureFile = IntegrityCheckOptions.getCaptureFile();
+        if (captureFile == null) {
+            return;
+        }
+        try {
+            captureWriter = new PduCaptureWriter(captureFile);
+            logger.info("Capturing the received entities in {}", captureFile);
+        } catch (IOException e) {
+            logger.warn("Could not create the capture {}, the received entities are not captured", captureFile, e);
+        }
+    }
+
+    private void capture(long receiveNanos, EntityStatePdu receivedPdu) {
+        if (captureWriter == null) {
+            return;
+        }
+        try {
+            captureWriter.append(receiveNanos, receivedPdu);
+        } catch (IOException e) {
+            logger.warn("Could not write to the capture {}, capture stopped", captureWriter.getFile(), e);
+            closeCapture();
+        }
+    }
+
+    private void closeCapture() {
+        if (captureWriter == null) {
+            return;
         }
-        else {
-            logger.info("\n"+LINE_SEPARATOR+ "\nOKAY: BaseEntity from FAD with identifier " + fadEntity.getEntityIdentifier()
-                    + " was found in discovered Base Entities\n"+LINE_SEPARATOR);
+        try {
+            captureWriter.close();
+            logger.info("{} entity states captured in {}", captureWriter.getRecordCount(), captureWriter.getFile());
+        } catch (IOException e) {
+            logger.warn("Could not close the capture {}", captureWriter.getFile(), e);
         }
-        return testPassed;
+        captureWriter = null;
     }
 
     /**
-     * test if received the good amount of entities according to the fad
-     * @param receivedBaseEntitySize number of received entity
-     * @param fadSize nubmer of entity in the fad
-     * @return true if the receivedBaseEntitySize match fadSize
+     * Wait for the verdict report to be written, a failure is only logged.
      */
-    private boolean isNumberOfEntityReceivedGood( int receivedBaseEntitySize, int fadSize) {
-        boolean testPassed = true;
-        if (receivedBaseEntitySize < fadSize) {
-            testPassed = false;
-            logger.info(LINE_SEPARATOR+"+\nFAIL: Received less entities then expected. Received : {}, Expected : {}\n" +
-                    ""+LINE_SEPARATOR, receivedBaseEntitySize, fadSize);
+    private void closeReport() {
+        for (VerdictReportWriter reportWriter : reportWriters) {
+            try {
+                reportWriter.close();
+                logger.info("Verdict report of {} entities written to {}", reportWriter.getWritten(), reportWriter.getFile());
+            } catch (IOException e) {
+                logger.warn("Could not write the verdict report {}", reportWriter.getFile(), e);
+            }
+        }
+        reportWriters.clear();
+    }
 
+    /**
+     * Record the outcomes of a verifier in a report of the report directory, a failure is only logged.
+     *
+     * @param reportVerifier the verifier
+     * @param fileName name of the report file
+     */
+    private void openReport(FadVerifier reportVerifier, String fileName) {
+        File reportFile = new File(IntegrityCheckOptions.getReportDir(), fileName);
+        try {
+            VerdictReportWriter reportWriter = new VerdictReportWriter(reportFile);
+            reportVerifier.setReportWriter(reportWriter);
+            reportWriters.add(reportWriter);
+            reportFiles.add(reportFile);
+        } catch (IOException e) {
+            logger.warn("Could not create the verdict report {}, entity outcomes are not recorded", reportFile, e);
         }
-        else if (receivedBaseEntitySize > fad.size()){
-            testPassed = false;
-            logger.info(LINE_SEPARATOR+"+\nFAIL: Received more entities then expected. Received : {}, Expected : {}\n" +
-                            ""+LINE_SEPARATOR,
-                    receivedBaseEntitySize, fad.size());
+    }
+
+    /**
+     * Write the metrics of the run in the report directory, a failure is only logged.
+     *
+     * @param verdict verdict of the run
+     */
+    private void writeMetrics(String verdict) {
+        metrics.write(new File(IntegrityCheckOptions.getReportDir(), runId + "-metrics.json"),
+                getClass().getSimpleName(), verdict, logger);
+    }
+
+    /**
+     * Write the partial verdict of the shard of this process in the shard
+     * directory when the run is sharded, a failure is only logged.
+     *
+     * @param verdict verdict of the shard
+     */
+    private void writeShardVerdict(String verdict) {
+        int shardCount = IntegrityCheckOptions.getShardCount();
+        if (shardCount <= 1) {
+            return;
+        }
+        // checked by selectJudgedEntities before any entity was judged
+        ShardVerdict shardVerdict = new ShardVerdict(IntegrityCheckOptions.getShardRunId(),
+                IntegrityCheckOptions.getShardIndex(), shardCount, verdict);
+        if (pipelines != null) {
+            pipelines.addTo(shardVerdict);
+        } else {
+            shardVerdict.add(verifier);
+        }
+        reportFiles.forEach(shardVerdict::addReport);
+        try {
+            File file = shardVerdict.write(IntegrityCheckOptions.getShardDir());
+            logger.info("Partial verdict of the shard written to {}", file);
+        } catch (IOException e) {
+            logger.warn("Could not write the partial verdict of the shard to {}", IntegrityCheckOptions.getShardDir(), e);
         }
-        return testPassed;
     }
 }
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Judges the entities of one SuT against its own FAD on its own thread, so that
+ * several SuTs heard on the same port are checked in parallel.
+ *
+ * A single routing thread offers the entity states through a {@link SpscRing},
+ * the pipeline thread verifies them with its {@link FadVerifier} and gives the
+ * judgment when the pipeline is finished.
+ */
+public class CheckingPipeline {
+
+    /**
+     * verdicts of {@link #finish()}
+     */
+    public static final String PASSED = "PASSED";
+    public static final String FAILED = "FAILED";
+    public static final String INCONCLUSIVE = "INCONCLUSIVE";
+
+    private static final int RING_CAPACITY = 65536;
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final PipelineConfig config;
+    private final SpatialThresholds thresholds;
+    private final FadVerifier verifier;
+    private final RunMetrics metrics = new RunMetrics();
+    private final SpscRing<ReceivedPdu> ring = new SpscRing<>(RING_CAPACITY);
+    private final Thread thread;
+    private volatile boolean finishing;
+    private volatile boolean complete;
+    private volatile String verdict = INCONCLUSIVE;
+
+    /**
+     * @param config the configuration of the pipeline
+     * @param fad the entities of the FAD of the pipeline
+     * @param thresholds spatial thresholds of the pipeline
+     * @param compareOnArrival compare each entity when it is received
+     * @param maxUnknownEntities maximum number of entities not in the FAD whose states are kept
+     * @param logger the logger
+     * @throws IllegalArgumentException if the FAD lists an entity identifier more than once
+     */
+    public CheckingPipeline(PipelineConfig config, List<EntityStatePdu> fad, SpatialThresholds thresholds,
+            boolean compareOnArrival, int maxUnknownEntities, Logger logger) {
+        this.config = config;
+        this.thresholds = thresholds;
+        this.verifier = new FadVerifier(fad, thresholds, compareOnArrival, maxUnknownEntities, logger);
+        this.thread = new Thread(this::run, "pipeline-" + config.getName());
+        thread.setDaemon(true);
+    }
+
+    /**
+     * @return the verifier, to be configured before {@link #start()} and read after {@link #finish()}
+     */
+    public FadVerifier getVerifier() {
+        return verifier;
+    }
+
+    /**
+     * @return the PDUs, duplicates and FAD matches of the pipeline, to be read after {@link #finish()}
+     */
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PipelineConfig getConfig() {
+        return config;
+    }
+
+    public SpatialThresholds getThresholds() {
+        return thresholds;
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Hand a received entity state to the pipeline thread, waiting while the pipeline is behind.
+     * Only one thread may offer.
+     *
+     * @param pdu the entity state
+     * @param receiveNanos System.nanoTime() when it was received
+     */
+    public void offer(EntityStatePdu pdu, long receiveNanos) {
+        ReceivedPdu received = new ReceivedPdu(pdu, receiveNanos);
+        while (!ring.offer(received)) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * @return true when every FAD entity of the pipeline was received or its judgment can no longer pass
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Signal that nothing more will be offered, without waiting. The pipeline
+     * thread verifies the remaining entity states and gives its judgment.
+     */
+    public void requestFinish() {
+        finishing = true;
+    }
+
+    /**
+     * Wait for the judgment of the pipeline.
+     *
+     * @return {@link #PASSED}, {@link #FAILED}, or {@link #INCONCLUSIVE} when nothing was received
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public String finish() throws InterruptedException {
+        requestFinish();
+        thread.join();
+        return verdict;
+    }
+
+    private void run() {
+        while (true) {
+            ReceivedPdu received = ring.poll();
+            if (received != null) {
+                long receiveNanos = received.getReceiveNanos();
+                int outcome = verifier.accept(received.getPdu(), receiveNanos);
+                metrics.recordPdu(receiveNanos, outcome == FadVerifier.DUPLICATE);
+                if (outcome == FadVerifier.FAD_MATCH) {
+                    metrics.recordFadMatch(receiveNanos);
+                }
+                complete = verifier.isComplete();
+            } else if (finishing && ring.size() == 0) {
+                break;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        if (verifier.getReceivedCount() > 0) {
+            verdict = verifier.judge() ? PASSED : FAILED;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static ca.drdc.ivct.tc_lib_integritycheck_dis.FadVerifier.LINE_SEPARATOR;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+
+import de.fraunhofer.iosb.tc_lib.TcFailed;
+import de.fraunhofer.iosb.tc_lib.TcInconclusive;
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * The {@link CheckingPipeline}s of a pipelines file: routes each received
+ * entity state to the first pipeline it matches, and gives the verdict of the
+ * run once every pipeline has judged its SuT.
+ */
+public class CheckingPipelines {
+
+    /**
+     * configures the verifier of a pipeline before any entity is received
+     */
+    @FunctionalInterface
+    public interface VerifierSetup {
+        /**
+         * @param verifier the verifier of the pipeline
+         * @param name name of the pipeline
+         * @throws TcInconclusive if the verifier cannot be configured
+         */
+        void configure(FadVerifier verifier, String name) throws TcInconclusive;
+    }
+
+    private final List<CheckingPipeline> pipelines = new ArrayList<>();
+    private final RunMetrics metrics;
+    private final String testCase;
+    private final String runId;
+    private final Logger logger;
+    private long unroutedPduCount;
+    private String verdict = CheckingPipeline.INCONCLUSIVE;
+
+    /**
+     * @param metrics metrics of the run, the metrics of the pipelines are added to it
+     * @param testCase name of the test case
+     * @param runId identifier of the run, prefix of the report and metrics files
+     * @param logger the logger
+     */
+    public CheckingPipelines(RunMetrics metrics, String testCase, String runId, Logger logger) {
+        this.metrics = metrics;
+        this.testCase = testCase;
+        this.runId = runId;
+        this.logger = logger;
+    }
+
+    /**
+     * Create and start a pipeline for each entry of the configuration file.
+     *
+     * @param pipelineFile the pipelines configuration file
+     * @param defaultThresholds the thresholds of TcParam.json, for the ones a pipeline does not give
+     * @param fadSource loads the FAD of each pipeline
+     * @param setup configures the verifier of each pipeline
+     * @throws TcInconclusive if the configuration, a FAD or thresholds cannot be loaded
+     */
+    public void open(File pipelineFile, Map<String, ? extends Number> defaultThresholds, FadSource fadSource,
+            VerifierSetup setup) throws TcInconclusive {
+        List<PipelineConfig> configs;
+        try {
+            configs = PipelineConfig.load(pipelineFile);
+        } catch (IOException e) {
+            throw new TcInconclusive("Could not load the pipelines " + pipelineFile, e);
+        }
+        if (configs.isEmpty()) {
+            throw new TcInconclusive("No pipeline in " + pipelineFile);
+        }
+        for (PipelineConfig config : configs) {
+            SpatialThresholds thresholds;
+            try {
+                thresholds = SpatialThresholds.from(config.getThresholds(), defaultThresholds);
+            } catch (IllegalArgumentException e) {
+                throw new TcInconclusive("Invalid thresholds in the pipeline " + config.getName() + ": "
+                        + e.getMessage(), e);
+            }
+            CheckingPipeline pipeline;
+            try {
+                pipeline = new CheckingPipeline(config, fadSource.load(config.getFadUrls()), thresholds,
+                        IntegrityCheckOptions.isIncremental(), IntegrityCheckOptions.getMaxUnknownEntities(), logger);
+            } catch (IllegalArgumentException e) {
+                throw new TcInconclusive("Invalid FAD of the pipeline " + config.getName() + ": " + e.getMessage(), e);
+            }
+            setup.configure(pipeline.getVerifier(), config.getName());
+            pipelines.add(pipeline);
+        }
+        for (CheckingPipeline pipeline : pipelines) {
+            pipeline.start();
+        }
+        logger.info("Judging {} pipelines from {}", pipelines.size(), pipelineFile);
+    }
+
+    /**
+     * Hand a received entity state to the first pipeline it matches. The
+     * pipeline records it in its own metrics when it is verified.
+     *
+     * @param receivedPdu entity state received
+     * @param receiveNanos System.nanoTime() when it was received
+     */
+    public void route(EntityStatePdu receivedPdu, long receiveNanos) {
+        for (CheckingPipeline pipeline : pipelines) {
+            if (pipeline.getConfig().matches(receivedPdu)) {
+                pipeline.offer(receivedPdu, receiveNanos);
+                return;
+            }
+        }
+        unroutedPduCount++;
+        metrics.recordPdu(receiveNanos, false);
+    }
+
+    /**
+     * @return true when every pipeline is complete
+     */
+    public boolean isComplete() {
+        for (CheckingPipeline pipeline : pipelines) {
+            if (!pipeline.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Judge every pipeline in parallel, the test passes when all of them pass.
+     * Nothing may be routed afterwards.
+     *
+     * @throws TcInconclusive if a pipeline received nothing and none failed
+     * @throws TcFailed       if a pipeline failed
+     */
+    public void judge() throws TcInconclusive, TcFailed {
+        if (unroutedPduCount > 0) {
+            logger.info("{} received entity states matched no pipeline", unroutedPduCount);
+        }
+        // the pipelines judge on their own thread
+        for (CheckingPipeline pipeline : pipelines) {
+            pipeline.requestFinish();
+        }
+        List<String> failed = new ArrayList<>();
+        List<String> inconclusive = new ArrayList<>();
+        try {
+            for (CheckingPipeline pipeline : pipelines) {
+                String name = pipeline.getConfig().getName();
+                String pipelineVerdict = pipeline.finish();
+                metrics.add(pipeline.getMetrics());
+                pipeline.getMetrics().write(new File(IntegrityCheckOptions.getReportDir(),
+                        runId + "-" + name + "-metrics.json"), testCase, pipelineVerdict, logger);
+                logger.info("\n"+LINE_SEPARATOR+"\nPIPELINE {}: {}\n"+LINE_SEPARATOR, name, pipelineVerdict);
+                if (CheckingPipeline.FAILED.equals(pipelineVerdict)) {
+                    failed.add(name);
+                    if (IntegrityCheckOptions.isNearestMatch()) {
+                        pipeline.getVerifier().logNearestFadMatches(pipeline.getThresholds().getWorldLocation());
+                    }
+                } else if (CheckingPipeline.INCONCLUSIVE.equals(pipelineVerdict)) {
+                    inconclusive.add(name);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TcInconclusive("Interrupted while waiting for the pipelines", e);
+        }
+
+        if (!failed.isEmpty()) {
+            verdict = CheckingPipeline.FAILED;
+            throw new TcFailed("Test failed due to errors in entity(ies) or absent/unrecognized entity(ies) "
+                    + "of the pipeline(s) " + failed);
+        }
+        if (!inconclusive.isEmpty()) {
+            throw new TcInconclusive("No BaseEntity objects received by the pipeline(s) " + inconclusive);
+        }
+        verdict = CheckingPipeline.PASSED;
+    }
+
+    /**
+     * @return the verdict of {@link #judge()}, {@link CheckingPipeline#INCONCLUSIVE} before it
+     */
+    public String getVerdict() {
+        return verdict;
+    }
+
+    /**
+     * @param shardVerdict partial verdict of the shard, given the counts of every pipeline
+     */
+    public void addTo(ShardVerdict shardVerdict) {
+        for (CheckingPipeline pipeline : pipelines) {
+            shardVerdict.add(pipeline.getVerifier());
+        }
+    }
+}
@@ -17,46 +17,70 @@
 
 package ca.drdc.ivct.tc_lib_integritycheck_dis;
 
+import java.util.function.BooleanSupplier;
+
 import org.slf4j.Logger;
 
 /**
- * Wait for a determined amount of time.
- * 
+ * Wait for a determined amount of time, or until a completion condition is met.
+ *
  * @author laurenceO
  */
 public class CountdownTimer implements Runnable{
+    private static final long POLL_INTERVAL_MS = 100;
+
     private volatile int countdownSec; // in seconds
     private final int initialCountdown;
     private Logger logger;
-    
+    private final BooleanSupplier completion;
+
     /**
      * @param countdownSec number of second to countdown
-     * @param logger the logger 
+     * @param logger the logger
      */
     public CountdownTimer(int countdownSec, Logger logger){
+        this(countdownSec, logger, () -> false);
+    }
+
+    /**
+     * @param countdownSec maximum number of second to countdown
+     * @param logger the logger
+     * @param completion polled every {@value #POLL_INTERVAL_MS} ms, the countdown stops as soon as it returns true
+     */
+    public CountdownTimer(int countdownSec, Logger logger, BooleanSupplier completion){
         this.initialCountdown = countdownSec;
         this.countdownSec = countdownSec;
         this.logger = logger;
+        this.completion = completion;
     }
 
 
     public void resetTimer(){
         this.countdownSec = initialCountdown;
     }
-    
+
     @Override
     public void run() {
+        long elapsedMs = 0;
         while(countdownSec > 0){
+            if (completion.getAsBoolean()) {
+                logger.info("Completion condition met with {} seconds left.", countdownSec);
+                return;
+            }
             try {
-                // Sleep one second.
-                Thread.sleep(1000); 
-                countdownSec--;
-                logger.info("Listening for another {} seconds.", countdownSec);
+                Thread.sleep(POLL_INTERVAL_MS);
+                elapsedMs += POLL_INTERVAL_MS;
+                if (elapsedMs >= 1000) {
+                    elapsedMs = 0;
+                    countdownSec--;
+                    logger.info("Listening for another {} seconds.", countdownSec);
+                }
             } catch (InterruptedException e) {
                 logger.warn("Counter thread interrupted", e);
                 // Restore interrupted state...
                 Thread.currentThread().interrupt();
-            } 
+                return;
+            }
         }
     }
-}
\ No newline at end of file
+}
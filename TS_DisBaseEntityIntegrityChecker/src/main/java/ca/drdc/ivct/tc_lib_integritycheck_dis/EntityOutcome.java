@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import ca.drdc.ivct.scenario.EntityKey;
+
+/**
+ * Outcome of the verification of one entity, as written in the verdict report.
+ *
+ * Either side may be absent: a FAD entity that was not received has no
+ * received fields, a received entity that is not in the FAD has no FAD fields.
+ */
+public class EntityOutcome {
+
+    private final long entityKey;
+    private final int mismatches;
+    private final int updates;
+    private final boolean inFad;
+    private final boolean received;
+    private final long fadType;
+    private final double[] fadLocation;
+    private final boolean fadFrozen;
+    private final long receivedType;
+    private final double[] receivedLocation;
+    private final boolean receivedFrozen;
+
+    /**
+     * @param entityKey {@link EntityKey} of the entity
+     * @param mismatches {@link MismatchFlags} of the entity
+     * @param updates number of states received for the entity
+     * @param fad FAD fields, null if the entity is not in the FAD
+     * @param received received fields, null if the entity was not received
+     * @param index index of the entity in both columns
+     */
+    public EntityOutcome(long entityKey, int mismatches, int updates, SpatialColumns fad, SpatialColumns received, int index) {
+        this.entityKey = entityKey;
+        this.mismatches = mismatches;
+        this.updates = updates;
+        this.inFad = fad != null;
+        this.received = received != null;
+        this.fadType = inFad ? fad.getEntityType()[index] : 0;
+        this.fadLocation = inFad ? new double[] {fad.getX()[index], fad.getY()[index], fad.getZ()[index]} : null;
+        this.fadFrozen = inFad && fad.getFrozen()[index];
+        this.receivedType = this.received ? received.getEntityType()[index] : 0;
+        this.receivedLocation = this.received
+                ? new double[] {received.getX()[index], received.getY()[index], received.getZ()[index]} : null;
+        this.receivedFrozen = this.received && received.getFrozen()[index];
+    }
+
+    public long getEntityKey() {
+        return entityKey;
+    }
+
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    public int getUpdates() {
+        return updates;
+    }
+
+    /**
+     * @return PASS, WARN when only warning fields mismatch, FAIL otherwise
+     */
+    public String getStatus() {
+        if (MismatchFlags.isFailure(mismatches)) {
+            return "FAIL";
+        }
+        return MismatchFlags.isWarning(mismatches) ? "WARN" : "PASS";
+    }
+
+    /**
+     * Append the outcome as one line of JSON, without the line separator.
+     *
+     * @param line the line to append to
+     */
+    public void appendJson(StringBuilder line) {
+        line.append("{\"id\":\"").append(EntityKey.toString(entityKey))
+                .append("\",\"status\":\"").append(getStatus())
+                .append("\",\"failures\":\"").append(MismatchFlags.toString(mismatches & MismatchFlags.FAILURES))
+                .append("\",\"warnings\":\"").append(MismatchFlags.toString(mismatches & MismatchFlags.WARNINGS))
+                .append("\",\"updates\":").append(updates);
+        if (inFad) {
+            line.append(",\"type\":\"").append(EntityKey.typeToString(fadType)).append('"');
+            appendLocation(line, "location", fadLocation);
+            line.append(",\"frozen\":").append(fadFrozen);
+        }
+        if (received) {
+            line.append(",\"receivedType\":\"").append(EntityKey.typeToString(receivedType)).append('"');
+            appendLocation(line, "receivedLocation", receivedLocation);
+            line.append(",\"receivedFrozen\":").append(receivedFrozen);
+        }
+        line.append('}');
+    }
+
+    private static void appendLocation(StringBuilder line, String name, double[] location) {
+        line.append(",\"").append(name).append("\":[")
+                .append(location[0]).append(',').append(location[1]).append(',').append(location[2]).append(']');
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.Arrays;
+
+import ca.drdc.ivct.scenario.EntityKey;
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * First and latest state of each entity received, keyed by {@link EntityKey}.
+ *
+ * A SuT rebroadcasts its entities every few seconds, the table keeps two PDUs
+ * per entity whatever the number of updates, so its size is bounded by the
+ * number of distinct entities. Expected entities, the ones of the FAD, are
+ * always stored; once {@code maxUnknownEntities} other entities are stored,
+ * PDUs of new unknown entities are only counted as overflow.
+ */
+public class EntityStateTable {
+
+    /**
+     * returned by {@link #record(long, boolean, EntityStatePdu, long)} when the table is full of unknown entities
+     */
+    public static final int NOT_STORED = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final LongIntHashMap slots;
+    private final int maxUnknownEntities;
+    private final int maxEntities;
+    private long[] keys;
+    private EntityStatePdu[] first;
+    private EntityStatePdu[] latest;
+    private long[] firstNanos;
+    private long[] latestNanos;
+    private int[] updates;
+    private int size;
+    private int unknownSize;
+    private long overflow;
+
+    /**
+     * @param expectedEntities number of distinct entities expected, typically the FAD size
+     * @param maxUnknownEntities maximum number of distinct unexpected entities stored
+     */
+    public EntityStateTable(int expectedEntities, int maxUnknownEntities) {
+        this.maxUnknownEntities = maxUnknownEntities;
+        this.maxEntities = (int) Math.min(Integer.MAX_VALUE, (long) expectedEntities + maxUnknownEntities);
+        int capacity = Math.max(MIN_CAPACITY, expectedEntities);
+        this.slots = new LongIntHashMap(capacity);
+        this.keys = new long[capacity];
+        this.first = new EntityStatePdu[capacity];
+        this.latest = new EntityStatePdu[capacity];
+        this.firstNanos = new long[capacity];
+        this.latestNanos = new long[capacity];
+        this.updates = new int[capacity];
+    }
+
+    /**
+     * Record a received state, the first state of an entity is kept and the
+     * latest one replaced.
+     *
+     * @param key {@link EntityKey} of the entity
+     * @param expected whether the entity is one of the expected entities, which are always stored
+     * @param pdu the received state
+     * @param receiveNanos System.nanoTime() when the state was received
+     * @return the slot of the entity, or {@link #NOT_STORED} when an unexpected entity does not fit
+     */
+    public int record(long key, boolean expected, EntityStatePdu pdu, long receiveNanos) {
+        int slot = slots.get(key);
+        if (slot == LongIntHashMap.NO_VALUE) {
+            if (!expected) {
+                if (unknownSize == maxUnknownEntities) {
+                    overflow++;
+                    return NOT_STORED;
+                }
+                unknownSize++;
+            }
+            if (size == keys.length) {
+                grow();
+            }
+            slot = size++;
+            slots.put(key, slot);
+            keys[slot] = key;
+            first[slot] = pdu;
+            firstNanos[slot] = receiveNanos;
+        }
+        latest[slot] = pdu;
+        latestNanos[slot] = receiveNanos;
+        updates[slot]++;
+        return slot;
+    }
+
+    /**
+     * @param key {@link EntityKey} of the entity
+     * @return the slot of the entity, or {@link LongIntHashMap#NO_VALUE} if it was not received
+     */
+    public int slotOf(long key) {
+        return slots.get(key);
+    }
+
+    public long getKey(int slot) {
+        return keys[slot];
+    }
+
+    public EntityStatePdu getFirst(int slot) {
+        return first[slot];
+    }
+
+    public EntityStatePdu getLatest(int slot) {
+        return latest[slot];
+    }
+
+    public long getFirstNanos(int slot) {
+        return firstNanos[slot];
+    }
+
+    public long getLatestNanos(int slot) {
+        return latestNanos[slot];
+    }
+
+    /**
+     * @param slot slot of the entity
+     * @return number of states received for the entity
+     */
+    public int getUpdates(int slot) {
+        return updates[slot];
+    }
+
+    /**
+     * @return number of distinct entities stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of distinct unexpected entities stored
+     */
+    public int unknownSize() {
+        return unknownSize;
+    }
+
+    /**
+     * @return number of PDUs dropped because the table was full of unknown entities
+     */
+    public long getOverflow() {
+        return overflow;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.max(keys.length + 1, Math.min((long) keys.length * 2, maxEntities));
+        keys = Arrays.copyOf(keys, capacity);
+        first = Arrays.copyOf(first, capacity);
+        latest = Arrays.copyOf(latest, capacity);
+        firstNanos = Arrays.copyOf(firstNanos, capacity);
+        latestNanos = Arrays.copyOf(latestNanos, capacity);
+        updates = Arrays.copyOf(updates, capacity);
+    }
+}
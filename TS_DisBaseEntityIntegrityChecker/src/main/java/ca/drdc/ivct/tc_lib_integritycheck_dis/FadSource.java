@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+
+import ca.drdc.ivct.fom.utils.BaseEntityCSVReader;
+import ca.drdc.ivct.scenario.FadSnapshotCache;
+import ca.drdc.ivct.scenario.ScenarioGenerator;
+import ca.drdc.ivct.scenario.ScenarioSpec;
+import de.fraunhofer.iosb.tc_lib.TcInconclusive;
+import de.fraunhofer.iosb.tc_lib.converter.DisModelConverter;
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Gives the entities of a FAD as the EntityState PDUs the SuT is expected to
+ * send: generated from a scenario, mapped from a compiled snapshot, or parsed
+ * from the csv files.
+ */
+public class FadSource {
+
+    private final File scenarioFile;
+    private final File fadCacheDir;
+    private final Logger logger;
+
+    /**
+     * @param scenarioFile the scenario properties file, null to load the FAD files
+     * @param fadCacheDir the FAD snapshot cache directory, null to always parse the FAD files
+     * @param logger the logger
+     */
+    public FadSource(File scenarioFile, File fadCacheDir, Logger logger) {
+        this.scenarioFile = scenarioFile;
+        this.fadCacheDir = fadCacheDir;
+        this.logger = logger;
+    }
+
+    /**
+     * @param logger the logger
+     * @return the source given by {@link IntegrityCheckOptions#SCENARIO} and {@link IntegrityCheckOptions#FAD_CACHE}
+     */
+    public static FadSource fromOptions(Logger logger) {
+        return new FadSource(IntegrityCheckOptions.getScenarioFile(), IntegrityCheckOptions.getFadCacheDir(), logger);
+    }
+
+    /**
+     * @param fadUrls the FAD files of TcParam.json
+     * @return the entities of the scenario when one is given, of the FAD files otherwise
+     * @throws TcInconclusive if the FAD cannot be loaded or is empty
+     */
+    public List<EntityStatePdu> select(List<URL> fadUrls) throws TcInconclusive {
+        return scenarioFile != null ? generate(scenarioFile) : load(fadUrls);
+    }
+
+    /**
+     * Load the FAD files, through their compiled snapshot when a cache directory is given.
+     *
+     * @param fadUrls the FAD files
+     * @return the entities of the FAD
+     * @throws TcInconclusive if the FAD cannot be loaded or is empty
+     */
+    public List<EntityStatePdu> load(List<URL> fadUrls) throws TcInconclusive {
+        try {
+            List<EntityStatePdu> loaded;
+            if (fadCacheDir != null) {
+                FadSnapshotCache cache = new FadSnapshotCache(fadCacheDir.toPath(),
+                        FadSnapshotCache.versionOf(DisModelConverter.class));
+                loaded = cache.load(fadUrls, FadSource::parse);
+            } else {
+                loaded = parse(fadUrls);
+            }
+            if (loaded.isEmpty()) {
+                throw new TcInconclusive("The FAD is empty.");
+            }
+            return loaded;
+        } catch (IOException | ParseException e) {
+            throw new TcInconclusive("Could not load the FAD.", e);
+        }
+    }
+
+    /**
+     * Generate the FAD of a synthetic scenario, as the SiSut does from the same file.
+     *
+     * @param scenario the scenario properties file
+     * @return the entities of the scenario
+     * @throws TcInconclusive if the scenario cannot be loaded
+     */
+    public List<EntityStatePdu> generate(File scenario) throws TcInconclusive {
+        ScenarioGenerator generator;
+        try {
+            generator = new ScenarioGenerator(ScenarioSpec.load(scenario.toPath()));
+        } catch (IOException e) {
+            throw new TcInconclusive("Could not load the scenario " + scenario + ": " + e.getMessage(), e);
+        }
+        if (generator.size() == 0) {
+            throw new TcInconclusive("The FAD is empty.");
+        }
+        logger.info("Generating the {} entities of the scenario {}", generator.size(), scenario);
+        // generated once more by the verifier when it copies the FAD fields
+        return generator.asList();
+    }
+
+    /**
+     * Parse the FAD csv files, the entities are converted to PDUs once.
+     *
+     * @param fadUrls the FAD files
+     * @return the entities of the FAD
+     * @throws IOException if a file cannot be read
+     * @throws ParseException if a file is not a valid FAD
+     */
+    public static List<EntityStatePdu> parse(List<URL> fadUrls) throws IOException, ParseException {
+        return BaseEntityCSVReader.loadCSVFileToBaseEntityList(fadUrls).stream()
+                .map(DisModelConverter::rprEntityToDis)
+                .collect(Collectors.toList());
+    }
+}
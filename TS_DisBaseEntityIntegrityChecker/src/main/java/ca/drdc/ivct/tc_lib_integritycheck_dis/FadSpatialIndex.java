@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Static k-d tree over the world location of the FAD entities.
+ *
+ * The tree is an array of FAD ordinals, the median of each range is the node
+ * of that range and splits it along x, y then z. Building is O(n log n) and a
+ * nearest neighbour query is O(log n) on average, without allocating nodes.
+ */
+public class FadSpatialIndex {
+
+    private static final int DIMENSIONS = 3;
+
+    private final double[][] coordinates;
+    private final int[] nodes;
+
+    /**
+     * @param x world location x of each FAD entity, indexed by FAD ordinal
+     * @param y world location y of each FAD entity, indexed by FAD ordinal
+     * @param z world location z of each FAD entity, indexed by FAD ordinal
+     */
+    public FadSpatialIndex(double[] x, double[] y, double[] z) {
+        this.coordinates = new double[][] {x, y, z};
+        this.nodes = new int[x.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = i;
+        }
+        build(0, nodes.length, 0);
+    }
+
+    /**
+     * Find the FAD entity closest to a location, within a distance on each axis.
+     *
+     * @param x world location x
+     * @param y world location y
+     * @param z world location z
+     * @param maxAxisDistance maximum distance on each axis, as the worldLocation threshold
+     * @param candidate only the FAD ordinals accepted by this predicate are considered
+     * @return the FAD ordinal of the closest candidate, -1 if there is none
+     */
+    public int nearest(double x, double y, double z, double maxAxisDistance, IntPredicate candidate) {
+        Query query = new Query(new double[] {x, y, z}, maxAxisDistance, candidate);
+        search(query, 0, nodes.length, 0);
+        return query.best;
+    }
+
+    private void search(Query query, int lo, int hi, int axis) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int ordinal = nodes[mid];
+        query.visit(ordinal);
+
+        int nextAxis = (axis + 1) % DIMENSIONS;
+        double delta = coordinates[axis][ordinal] - query.location[axis];
+        if (delta > 0) {
+            search(query, lo, mid, nextAxis);
+            if (query.mayContain(delta)) {
+                search(query, mid + 1, hi, nextAxis);
+            }
+        } else {
+            search(query, mid + 1, hi, nextAxis);
+            if (query.mayContain(delta)) {
+                search(query, lo, mid, nextAxis);
+            }
+        }
+    }
+
+    /**
+     * Order nodes[lo, hi) so that the median by the axis coordinate is in the
+     * middle, then do the same on each half with the next axis.
+     */
+    private void build(int lo, int hi, int axis) {
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, coordinates[axis]);
+            int nextAxis = (axis + 1) % DIMENSIONS;
+            build(lo, mid, nextAxis);
+            lo = mid + 1;
+            axis = nextAxis;
+        }
+    }
+
+    /**
+     * Quickselect: place at position k the node that would be there if nodes[left, right] was sorted.
+     */
+    private void select(int left, int right, int k, double[] values) {
+        while (left < right) {
+            double pivot = values[nodes[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[nodes[i]] < pivot) {
+                    i++;
+                }
+                while (values[nodes[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = nodes[i];
+                    nodes[i] = nodes[j];
+                    nodes[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private final class Query {
+        private final double[] location;
+        private final double maxAxisDistance;
+        private final IntPredicate candidate;
+        private int best = -1;
+        private double bestDistanceSquared = Double.POSITIVE_INFINITY;
+
+        private Query(double[] location, double maxAxisDistance, IntPredicate candidate) {
+            this.location = location;
+            this.maxAxisDistance = maxAxisDistance;
+            this.candidate = candidate;
+        }
+
+        private void visit(int ordinal) {
+            double distanceSquared = 0;
+            for (int axis = 0; axis < DIMENSIONS; axis++) {
+                double delta = coordinates[axis][ordinal] - location[axis];
+                if (Math.abs(delta) > maxAxisDistance) {
+                    return;
+                }
+                distanceSquared += delta * delta;
+            }
+            if (distanceSquared < bestDistanceSquared && candidate.test(ordinal)) {
+                best = ordinal;
+                bestDistanceSquared = distanceSquared;
+            }
+        }
+
+        /**
+         * @param delta distance to the splitting plane
+         * @return true if the other side of the plane can hold a closer candidate
+         */
+        private boolean mayContain(double delta) {
+            return Math.abs(delta) <= maxAxisDistance && delta * delta < bestDistanceSquared;
+        }
+    }
+}
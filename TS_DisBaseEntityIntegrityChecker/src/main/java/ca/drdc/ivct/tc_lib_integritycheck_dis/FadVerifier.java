@@ -0,0 +1,590 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.slf4j.Logger;
+
+import ca.drdc.ivct.scenario.EntityKey;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.Vector3Double;
+
+/**
+ * Matches received entities against the federation agreement document (FAD) one
+ * at a time, as they arrive.
+ *
+ * Only the first received instance of each entity is judged, later instances
+ * with the same identifier only update the latest state of the entity in the
+ * {@link EntityStateTable}. Since the first instance decides the outcome, a
+ * mismatch can be reported as soon as it is received.
+ *
+ * FAD and received entities are looked up by their {@link EntityKey}. The
+ * FAD is given as EntityState PDUs whose fields are copied once into
+ * {@link SpatialColumns}, and a received PDU is copied into the same columns,
+ * so entities are compared in the DIS frame without any conversion to RPR
+ * objects. Entity types are compared as packed keys, the spatial fields by the
+ * {@link SpatialComparisonEngine}, either on arrival or all at once in
+ * {@link #judge()}.
+ *
+ * The outcome of every entity is written to the {@link VerdictReportWriter} when
+ * one is set, the console only gets the first failures and a summary.
+ *
+ * With {@link #setShard(int, int)} only the entities of one shard are judged,
+ * the FAD entities and received entities of the other shards are ignored. With
+ * {@link #setSample(int, long, double)} only a random subset of the FAD is
+ * judged: the other FAD entities are ignored when received, and the judgment
+ * ends with a {@link SampleEstimate} of the mismatch rate of the whole FAD.
+ */
+public class FadVerifier {
+
+    /**
+     * outcomes of {@link #accept(EntityStatePdu, long)}
+     */
+    public static final int FAD_MATCH = 0;
+    public static final int UNKNOWN = 1;
+    public static final int DUPLICATE = 2;
+    public static final int NOT_SAMPLED = 3;
+    public static final int OTHER_SHARD = 4;
+
+    public static final int DEFAULT_MAX_UNKNOWN_ENTITIES = 10000;
+
+    /**
+     * separator of the console messages of the test case
+     */
+    public static final String LINE_SEPARATOR = "---------------------------------------------------------------------";
+
+    private final int fadSize;
+    private final LongIntHashMap fadOrdinals;
+    private final long[] fadKeys;
+    private final Logger logger;
+
+    /**
+     * when true each entity is compared as soon as it is received, otherwise the
+     * whole FAD is compared in parallel by {@link #judge()}
+     */
+    private final boolean compareOnArrival;
+
+    /**
+     * per FAD entity, true when its identifier was received
+     */
+    private final boolean[] matched;
+
+    /**
+     * per FAD entity, true when it is judged; null when the whole FAD is judged
+     */
+    private boolean[] judged;
+    private int judgedCount;
+    private int shardIndex;
+    private int shardCount = 1;
+    private boolean sampling;
+    private long sampleSeed;
+    private double sampleConfidence;
+    private int samplePopulation;
+    private SampleEstimate sampleEstimate;
+
+    /**
+     * spatial fields of the FAD entities and of the first instance of the
+     * received ones, indexed by FAD ordinal
+     */
+    private final SpatialColumns fadColumns;
+    private final SpatialColumns receivedColumns;
+    private final SpatialComparisonEngine comparisonEngine;
+
+    /**
+     * per FAD entity, the {@link MismatchFlags} of the comparison
+     */
+    private final byte[] results;
+
+    /**
+     * first and latest state of each entity received, FAD or not
+     */
+    private final EntityStateTable receivedStates;
+
+    private int matchedCount;
+    private int unknownCount;
+    private int receivedCount;
+    private boolean mismatchFound;
+
+    private VerdictReportWriter reportWriter;
+    private int consoleFailureLimit = Integer.MAX_VALUE;
+    /**
+     * failures logged or not to the console, of FAD entities and of entities not in the FAD
+     */
+    private int failureCount;
+    private int failedFadCount;
+    private int warningCount;
+
+    /**
+     * @param fad the entities of the federation agreement document
+     * @param thresholds spatial thresholds of the test case
+     * @param compareOnArrival compare each entity when it is received instead of all at once in {@link #judge()}
+     * @param logger the logger
+     */
+    public FadVerifier(List<EntityStatePdu> fad, SpatialThresholds thresholds, boolean compareOnArrival, Logger logger) {
+        this(fad, thresholds, compareOnArrival, DEFAULT_MAX_UNKNOWN_ENTITIES, logger);
+    }
+
+    /**
+     * @param fad the entities of the federation agreement document
+     * @param thresholds spatial thresholds of the test case
+     * @param compareOnArrival compare each entity when it is received instead of all at once in {@link #judge()}
+     * @param maxUnknownEntities maximum number of entities not in the FAD whose states are kept
+     * @param logger the logger
+     * @throws IllegalArgumentException if the FAD lists an entity identifier more than once
+     */
+    public FadVerifier(List<EntityStatePdu> fad, SpatialThresholds thresholds, boolean compareOnArrival,
+            int maxUnknownEntities, Logger logger) {
+        this.fadSize = fad.size();
+        this.compareOnArrival = compareOnArrival;
+        this.logger = logger;
+        this.matched = new boolean[fadSize];
+        this.results = new byte[fadSize];
+        this.fadOrdinals = new LongIntHashMap(fadSize);
+        this.fadKeys = new long[fadSize];
+        this.fadColumns = new SpatialColumns(fadSize);
+        this.receivedColumns = new SpatialColumns(fadSize);
+        for (int i = 0; i < fadSize; i++) {
+            EntityStatePdu fadPdu = fad.get(i);
+            fadKeys[i] = EntityKey.of(fadPdu.getEntityID());
+            int previous = fadOrdinals.putIfAbsent(fadKeys[i], i);
+            if (previous != LongIntHashMap.NO_VALUE) {
+                throw new IllegalArgumentException("The FAD lists the entity " + EntityKey.toString(fadKeys[i])
+                        + " more than once, at the positions " + (previous + 1) + " and " + (i + 1));
+            }
+            fadColumns.set(i, fadPdu);
+        }
+        this.comparisonEngine = new SpatialComparisonEngine(fadColumns, receivedColumns, thresholds);
+        this.receivedStates = new EntityStateTable(fadSize, maxUnknownEntities);
+        this.judgedCount = fadSize;
+    }
+
+    /**
+     * Judge only the entities of one shard, must be called before the first entity is received and before
+     * {@link #setSample(int, long, double)}.
+     *
+     * @param shardIndex shard judged, see {@link EntityKey#shardOf(long, int)}
+     * @param shardCount number of shards, 1 to judge every entity
+     */
+    public void setShard(int shardIndex, int shardCount) {
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        if (shardCount <= 1) {
+            return;
+        }
+        judged = new boolean[fadSize];
+        judgedCount = 0;
+        for (int i = 0; i < fadSize; i++) {
+            judged[i] = owns(fadKeys[i]);
+            if (judged[i]) {
+                judgedCount++;
+            }
+        }
+    }
+
+    /**
+     * Judge a random subset of the FAD entities of the shard instead of all of them, must be called before the
+     * first entity is received. Ignored when the sample size is not smaller than the FAD of the shard.
+     *
+     * @param sampleSize number of FAD entities judged
+     * @param seed seed of the random subset, the same seed gives the same subset of the same FAD
+     * @param confidence confidence level of the bounds of the {@link SampleEstimate}, between 0 and 1 exclusive
+     * @throws IllegalArgumentException if the confidence is not between 0 and 1 exclusive
+     */
+    public void setSample(int sampleSize, long seed, double confidence) {
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("The sample confidence " + confidence + " is not between 0 and 1");
+        }
+        if (sampleSize <= 0 || sampleSize >= judgedCount) {
+            return;
+        }
+        int[] candidates = new int[judgedCount];
+        for (int i = 0, c = 0; i < fadSize; i++) {
+            if (judged == null || judged[i]) {
+                candidates[c++] = i;
+            }
+        }
+        // Floyd's algorithm: sampleSize distinct candidates, each subset equally likely
+        SplittableRandom random = new SplittableRandom(seed);
+        boolean[] picked = new boolean[candidates.length];
+        for (int j = candidates.length - sampleSize; j < candidates.length; j++) {
+            int candidate = random.nextInt(j + 1);
+            picked[picked[candidate] ? j : candidate] = true;
+        }
+        judged = new boolean[fadSize];
+        for (int c = 0; c < candidates.length; c++) {
+            judged[candidates[c]] = picked[c];
+        }
+        samplePopulation = judgedCount;
+        judgedCount = sampleSize;
+        sampling = true;
+        sampleSeed = seed;
+        sampleConfidence = confidence;
+    }
+
+    /**
+     * @return true when only a subset of the FAD is judged
+     */
+    public boolean isSampling() {
+        return sampling;
+    }
+
+    /**
+     * @param key {@link EntityKey} of an entity
+     * @return true when the entity belongs to the shard of the verifier
+     */
+    boolean owns(long key) {
+        return shardCount <= 1 || EntityKey.shardOf(key, shardCount) == shardIndex;
+    }
+
+    /**
+     * @return the estimate of the mismatch rate of the FAD after {@link #judge()} in sampling mode, null otherwise
+     */
+    public SampleEstimate getSampleEstimate() {
+        return sampleEstimate;
+    }
+
+    /**
+     * @param reportWriter receives the outcome of every entity, null for none
+     */
+    public void setReportWriter(VerdictReportWriter reportWriter) {
+        this.reportWriter = reportWriter;
+    }
+
+    /**
+     * @param consoleFailureLimit maximum number of entity failures logged, the others are only in the report
+     */
+    public void setConsoleFailureLimit(int consoleFailureLimit) {
+        this.consoleFailureLimit = consoleFailureLimit;
+    }
+
+    /**
+     * Record a received entity received now.
+     *
+     * @param receivedPdu entity state received
+     * @return see {@link #accept(EntityStatePdu, long)}
+     */
+    public int accept(EntityStatePdu receivedPdu) {
+        return accept(receivedPdu, System.nanoTime());
+    }
+
+    /**
+     * Record a received entity, only its latest state is updated if an entity with the same identifier was
+     * already received.
+     *
+     * @param receivedPdu entity state received
+     * @param receiveNanos System.nanoTime() when the entity was received
+     * @return {@link #FAD_MATCH} for the first instance of a FAD entity, {@link #UNKNOWN} for the first
+     * instance of an entity not in the FAD, {@link #DUPLICATE} for any later instance, {@link #NOT_SAMPLED}
+     * for a FAD entity outside of the sample and {@link #OTHER_SHARD} for an entity of another shard, which
+     * are not recorded
+     */
+    public int accept(EntityStatePdu receivedPdu, long receiveNanos) {
+        long key = EntityKey.of(receivedPdu.getEntityID());
+        if (!owns(key)) {
+            return OTHER_SHARD;
+        }
+        int ordinal = fadOrdinals.get(key);
+        if (judged != null && ordinal != LongIntHashMap.NO_VALUE && !judged[ordinal]) {
+            return NOT_SAMPLED;
+        }
+        receivedCount++;
+        int slot = receivedStates.record(key, ordinal != LongIntHashMap.NO_VALUE, receivedPdu, receiveNanos);
+        if (slot == EntityStateTable.NOT_STORED) {
+            // too many entities not in the FAD, the test has failed already
+            return UNKNOWN;
+        }
+        if (receivedStates.getUpdates(slot) > 1) {
+            return DUPLICATE;
+        }
+
+        if (ordinal == LongIntHashMap.NO_VALUE) {
+            unknownCount++;
+            mismatchFound = true;
+            if (failureCount++ < consoleFailureLimit) {
+                logger.info("\n"+LINE_SEPARATOR+"\nFAIL: Received BaseEntity with identifier {} is not in the FAD\n"
+                        +LINE_SEPARATOR, EntityKey.toString(key));
+            }
+            return UNKNOWN;
+        }
+        matched[ordinal] = true;
+        matchedCount++;
+        receivedColumns.set(ordinal, receivedPdu);
+
+        if (compareOnArrival) {
+            results[ordinal] |= (byte) (compareEntityType(ordinal) | comparisonEngine.compare(ordinal));
+            report(ordinal);
+            if (MismatchFlags.isFailure(results[ordinal])) {
+                mismatchFound = true;
+            }
+        }
+        return FAD_MATCH;
+    }
+
+    /**
+     * @return true when every judged FAD entity was received or when the judgment can no longer pass
+     */
+    public boolean isComplete() {
+        return mismatchFound || matchedCount == judgedCount;
+    }
+
+    /**
+     * Compare the received entities if it was not done on arrival, report the FAD
+     * entities that were never received and the entities not in the FAD, and give
+     * the final judgment.
+     *
+     * @return true if every judged FAD entity was received and matches, and nothing else was received
+     */
+    public boolean judge() {
+        if (!compareOnArrival) {
+            comparisonEngine.compareAll(matched, results);
+            for (int i = 0; i < matched.length; i++) {
+                if (matched[i]) {
+                    results[i] |= (byte) compareEntityType(i);
+                }
+            }
+        }
+        boolean testPassed = unknownCount == 0 && receivedStates.getOverflow() == 0;
+        for (int i = 0; i < matched.length; i++) {
+            if (judged != null && !judged[i]) {
+                continue;
+            }
+            if (!matched[i]) {
+                results[i] |= MismatchFlags.NOT_RECEIVED;
+                report(i);
+            } else if (!compareOnArrival) {
+                report(i);
+            }
+            testPassed = testPassed && !MismatchFlags.isFailure(results[i]);
+        }
+        reportUnknownEntities();
+        testPassed = isNumberOfEntityReceivedGood(getDistinctReceivedCount(), judgedCount) && testPassed;
+        logSummary();
+        if (sampling) {
+            sampleEstimate = new SampleEstimate(judgedCount, failedFadCount, samplePopulation, sampleConfidence,
+                    sampleSeed);
+            logger.info("\n"+LINE_SEPARATOR+"\nSAMPLE: {}\n"+LINE_SEPARATOR, sampleEstimate);
+        }
+        return testPassed;
+    }
+
+    /**
+     * Diagnostic for SuTs that renumber entities: for each received entity that
+     * is not in the FAD, log the closest FAD entity of the same type that was not
+     * received, within the world location threshold.
+     *
+     * @param maxAxisDistance maximum distance on each axis of the world location
+     * @return number of received entities for which a FAD entity was found
+     */
+    public int logNearestFadMatches(double maxAxisDistance) {
+        if (unknownCount == 0 || matchedCount == judgedCount) {
+            return 0;
+        }
+        FadSpatialIndex spatialIndex = new FadSpatialIndex(fadColumns.getX(), fadColumns.getY(), fadColumns.getZ());
+        long[] fadTypes = fadColumns.getEntityType();
+        int found = 0;
+        for (int slot = 0; slot < receivedStates.size(); slot++) {
+            if (fadOrdinals.containsKey(receivedStates.getKey(slot))) {
+                continue;
+            }
+            EntityStatePdu unknownEntity = receivedStates.getFirst(slot);
+            long type = EntityKey.typeOf(unknownEntity.getEntityType());
+            Vector3Double location = unknownEntity.getEntityLocation();
+            int ordinal = spatialIndex.nearest(location.getX(), location.getY(), location.getZ(), maxAxisDistance,
+                    candidate -> !matched[candidate] && (judged == null || judged[candidate])
+                            && fadTypes[candidate] == type);
+            if (ordinal >= 0) {
+                found++;
+                logger.info("DIAGNOSTIC: Received BaseEntity with identifier {} is not in the FAD but matches the type {} "
+                        + "and location of the FAD entity {} that was not received",
+                        EntityKey.toString(receivedStates.getKey(slot)), EntityKey.typeToString(type),
+                        EntityKey.toString(fadKeys[ordinal]));
+            }
+        }
+        return found;
+    }
+
+    LongIntHashMap getFadOrdinals() {
+        return fadOrdinals;
+    }
+
+    long[] getFadKeys() {
+        return fadKeys;
+    }
+
+    SpatialColumns getFadColumns() {
+        return fadColumns;
+    }
+
+    /**
+     * @return number of entity states received for the judged entities or not in the FAD, duplicates included;
+     * the states of other shards and of FAD entities outside of the sample are not counted
+     */
+    public int getReceivedCount() {
+        return receivedCount;
+    }
+
+    /**
+     * @return number of distinct identifiers received
+     */
+    public int getDistinctReceivedCount() {
+        return receivedStates.size();
+    }
+
+    /**
+     * @return number of FAD entities judged, those of the shard or of the sample
+     */
+    public int getJudgedCount() {
+        return judgedCount;
+    }
+
+    /**
+     * @return number of judged FAD entities that failed, after {@link #judge()}
+     */
+    public int getFailedCount() {
+        return failedFadCount;
+    }
+
+    /**
+     * @return number of judged FAD entities not received
+     */
+    public int getNotReceivedCount() {
+        return judgedCount - matchedCount;
+    }
+
+    /**
+     * @return number of received entities that are not in the FAD
+     */
+    public int getUnknownCount() {
+        return unknownCount;
+    }
+
+    /**
+     * @return number of judged FAD entities with warnings, after {@link #judge()}
+     */
+    public int getWarningCount() {
+        return warningCount;
+    }
+
+    /**
+     * @param ordinal FAD ordinal of the entity, whose first received instance is in the received columns
+     * @return {@link MismatchFlags#ENTITY_TYPE} if the received type is not the FAD one, 0 otherwise
+     */
+    private int compareEntityType(int ordinal) {
+        return receivedColumns.getEntityType()[ordinal] == fadColumns.getEntityType()[ordinal] ? 0 : MismatchFlags.ENTITY_TYPE;
+    }
+
+    /**
+     *  report the comparison of a FAD entity with the received one, only failures
+     *  are logged and only up to the console failure limit
+     *
+     *  Note orientation && velocity && deadReckoning is not taken into account in the final judgment
+     *
+     * @param ordinal FAD ordinal of the entity
+     */
+    private void report(int ordinal){
+        int mask = results[ordinal];
+        if (reportWriter != null) {
+            int updates = matched[ordinal] ? receivedStates.getUpdates(receivedStates.slotOf(fadKeys[ordinal])) : 0;
+            reportWriter.write(new EntityOutcome(fadKeys[ordinal], mask, updates, fadColumns,
+                    matched[ordinal] ? receivedColumns : null, ordinal));
+        }
+        if (MismatchFlags.isWarning(mask)) {
+            warningCount++;
+        }
+        if (!MismatchFlags.isFailure(mask)) {
+            return;
+        }
+        failedFadCount++;
+        if (failureCount++ >= consoleFailureLimit) {
+            return;
+        }
+        String identifier = EntityKey.toString(fadKeys[ordinal]);
+        if ((mask & MismatchFlags.NOT_RECEIVED) != 0) {
+            logger.info("\n"+LINE_SEPARATOR+"\nFAIL: BaseEntity from FAD with identifier {} found no identity match in " +
+                    "discovered Base Entities", identifier+"\n"+LINE_SEPARATOR);
+        } else {
+            logger.info("\n"+LINE_SEPARATOR+ "\nFAIL: BaseEntity from FAD with identifier {} does not match the received entity: \n"+LINE_SEPARATOR
+                    + "entityTypeEqual [{}]; worldLocationEqual [{}]; frozenEqual [{}]", identifier,
+                    (mask & MismatchFlags.ENTITY_TYPE) == 0, (mask & MismatchFlags.WORLD_LOCATION) == 0, (mask & MismatchFlags.FROZEN) == 0);
+        }
+    }
+
+    /**
+     * report the entities received that are not in the FAD, they were logged on arrival
+     */
+    private void reportUnknownEntities() {
+        if (reportWriter == null || unknownCount == 0) {
+            return;
+        }
+        SpatialColumns unknownColumns = new SpatialColumns(unknownCount);
+        int index = 0;
+        for (int slot = 0; slot < receivedStates.size(); slot++) {
+            long key = receivedStates.getKey(slot);
+            if (fadOrdinals.containsKey(key)) {
+                continue;
+            }
+            unknownColumns.set(index, receivedStates.getFirst(slot));
+            reportWriter.write(new EntityOutcome(key, MismatchFlags.NOT_IN_FAD, receivedStates.getUpdates(slot),
+                    null, unknownColumns, index));
+            index++;
+        }
+    }
+
+    /**
+     * log the counts of the judgment
+     */
+    private void logSummary() {
+        int notReceived = judgedCount - matchedCount;
+        logger.info("\n"+LINE_SEPARATOR+"\nSUMMARY: FAD entities [{}]; received PDUs [{}]; distinct received [{}]\n"
+                + "passed [{}]; failed [{}] of which not received [{}]; not in FAD [{}]; with warnings [{}]\n"+LINE_SEPARATOR,
+                judgedCount, receivedCount, getDistinctReceivedCount(), judgedCount - failedFadCount, failedFadCount,
+                notReceived, unknownCount, warningCount);
+        if (receivedStates.getOverflow() > 0) {
+            logger.info("FAIL: {} PDUs of entities not in the FAD were not recorded, more than {} such entities received",
+                    receivedStates.getOverflow(), unknownCount);
+        }
+        if (failureCount > consoleFailureLimit) {
+            logger.info("{} more failures are only in the verdict report{}", failureCount - consoleFailureLimit,
+                    reportWriter != null ? " " + reportWriter.getFile() : "");
+        }
+    }
+
+    /**
+     * test if received the good amount of entities according to the fad
+     * @param receivedBaseEntitySize number of received entity
+     * @param fadSize nubmer of entity in the fad
+     * @return true if the receivedBaseEntitySize match fadSize
+     */
+    private boolean isNumberOfEntityReceivedGood( int receivedBaseEntitySize, int fadSize) {
+        boolean testPassed = true;
+        if (receivedBaseEntitySize < fadSize) {
+            testPassed = false;
+            logger.info(LINE_SEPARATOR+"+\nFAIL: Received less entities then expected. Received : {}, Expected : {}\n" +
+                    ""+LINE_SEPARATOR, receivedBaseEntitySize, fadSize);
+
+        }
+        else if (receivedBaseEntitySize > fadSize){
+            testPassed = false;
+            logger.info(LINE_SEPARATOR+"+\nFAIL: Received more entities then expected. Received : {}, Expected : {}\n" +
+                            ""+LINE_SEPARATOR,
+                    receivedBaseEntitySize, fadSize);
+        }
+        return testPassed;
+    }
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Hashed timing wheel of deadlines for a fixed set of int identifiers.
+ *
+ * Each identifier has at most one deadline. The wheel has a bucket per tick,
+ * modulo its size, holding an intrusive doubly linked list of the identifiers
+ * due at that tick or a later round. Scheduling, rescheduling and cancelling
+ * are constant time, and advancing the wheel only visits the buckets of the
+ * elapsed ticks instead of every identifier.
+ */
+public class HashedTimingWheel {
+
+    private static final int NONE = -1;
+
+    private final long startNanos;
+    private final long tickNanos;
+    private final int mask;
+    private final int[] heads;
+    private final int[] next;
+    private final int[] previous;
+    private final long[] deadlineTicks;
+    private long currentTick;
+    private int scheduled;
+
+    /**
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param tickNanos resolution of the deadlines
+     * @param capacity identifiers range from 0 to capacity - 1
+     * @param startNanos System.nanoTime() of tick 0
+     */
+    public HashedTimingWheel(int wheelSize, long tickNanos, int capacity, long startNanos) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.startNanos = startNanos;
+        this.tickNanos = tickNanos;
+        this.mask = size - 1;
+        this.heads = new int[size];
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.deadlineTicks = new long[capacity];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(deadlineTicks, NONE);
+    }
+
+    /**
+     * Schedule the deadline of an identifier, replacing its previous deadline.
+     *
+     * @param id the identifier
+     * @param deadlineNanos System.nanoTime() of the deadline, rounded up to the next tick
+     */
+    public void schedule(int id, long deadlineNanos) {
+        cancel(id);
+        long tick = Math.max(currentTick + 1, (deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+        int bucket = (int) tick & mask;
+        deadlineTicks[id] = tick;
+        previous[id] = NONE;
+        next[id] = heads[bucket];
+        if (heads[bucket] != NONE) {
+            previous[heads[bucket]] = id;
+        }
+        heads[bucket] = id;
+        scheduled++;
+    }
+
+    /**
+     * @param id the identifier, ignored when it has no deadline
+     */
+    public void cancel(int id) {
+        if (deadlineTicks[id] == NONE) {
+            return;
+        }
+        if (previous[id] != NONE) {
+            next[previous[id]] = next[id];
+        } else {
+            heads[(int) deadlineTicks[id] & mask] = next[id];
+        }
+        if (next[id] != NONE) {
+            previous[next[id]] = previous[id];
+        }
+        deadlineTicks[id] = NONE;
+        scheduled--;
+    }
+
+    public boolean isScheduled(int id) {
+        return deadlineTicks[id] != NONE;
+    }
+
+    /**
+     * @return number of identifiers with a deadline
+     */
+    public int size() {
+        return scheduled;
+    }
+
+    /**
+     * Expire the deadlines up to now, in tick order. The callback may schedule again the expired identifier.
+     *
+     * @param nowNanos System.nanoTime()
+     * @param expired receives the identifiers whose deadline has passed
+     * @return number of identifiers expired
+     */
+    public int advance(long nowNanos, IntConsumer expired) {
+        long nowTick = (nowNanos - startNanos) / tickNanos;
+        int count = 0;
+        while (currentTick < nowTick) {
+            currentTick++;
+            int id = heads[(int) currentTick & mask];
+            while (id != NONE) {
+                int following = next[id];
+                if (deadlineTicks[id] <= currentTick) {
+                    cancel(id);
+                    count++;
+                    expired.accept(id);
+                }
+                id = following;
+            }
+        }
+        return count;
+    }
+}
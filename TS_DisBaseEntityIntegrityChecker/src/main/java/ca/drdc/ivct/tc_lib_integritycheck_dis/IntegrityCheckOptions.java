@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.io.File;
+
+/**
+ * Options of the integrity check that are not part of the TcParam.json model
+ * handled by the DIS plugin. They are read from the system properties of the
+ * test runner JVM (e.g. -Dintegritycheck.incremental=true).
+ */
+public final class IntegrityCheckOptions {
+
+    /**
+     * when true, received entities are verified as they arrive and the waiting
+     * period ends as soon as every FAD entity is matched or a mismatch is seen
+     */
+    public static final String INCREMENTAL = "integritycheck.incremental";
+
+    /**
+     * when true and the test fails, each received entity that is not in the FAD
+     * is matched by type and world location against the FAD entities not received
+     */
+    public static final String NEAREST_MATCH = "integritycheck.nearestMatch";
+
+    /**
+     * directory where the reports of a run are written, the working directory by default
+     */
+    public static final String REPORT_DIR = "integritycheck.reportDir";
+
+    /**
+     * maximum number of entity failures logged to the console, every outcome is
+     * written to the verdict report in the report directory
+     */
+    public static final String CONSOLE_FAILURES = "integritycheck.consoleFailures";
+
+    private static final int DEFAULT_CONSOLE_FAILURES = 20;
+
+    /**
+     * maximum number of received entities that are not in the FAD whose states are kept
+     */
+    public static final String MAX_UNKNOWN_ENTITIES = "integritycheck.maxUnknownEntities";
+
+    /**
+     * UDP port on which the test suite receives the entity states itself, 0 to
+     * use the receiver of the DIS plugin
+     */
+    public static final String RECEIVE_PORT = "integritycheck.receivePort";
+
+    /**
+     * exercise identifier of the entity states kept by the test suite receiver, any by default
+     */
+    public static final String EXERCISE_ID = "integritycheck.exerciseId";
+
+    /**
+     * number of FAD entities judged, picked at random, 0 to judge the whole FAD
+     */
+    public static final String SAMPLE_SIZE = "integritycheck.sampleSize";
+
+    /**
+     * seed of the FAD entities picked by the sampling, a new seed on each run by default
+     */
+    public static final String SAMPLE_SEED = "integritycheck.sampleSeed";
+
+    /**
+     * confidence level of the bounds of the mismatch rate estimated by the sampling, between 0 and 1 exclusive
+     */
+    public static final String SAMPLE_CONFIDENCE = "integritycheck.sampleConfidence";
+
+    private static final double DEFAULT_SAMPLE_CONFIDENCE = 0.95;
+
+    /**
+     * number of checker processes of a sharded run, each judges the entities of its shard
+     */
+    public static final String SHARD_COUNT = "integritycheck.shardCount";
+
+    /**
+     * shard judged by this process, from 0 to shardCount - 1
+     */
+    public static final String SHARD_INDEX = "integritycheck.shardIndex";
+
+    /**
+     * directory shared by the shards of a run, where their partial verdicts are
+     * written and merged, the report directory by default
+     */
+    public static final String SHARD_DIR = "integritycheck.shardDir";
+
+    /**
+     * when true, the run combines the partial verdicts of the shards instead of judging entities
+     */
+    public static final String SHARD_MERGE = "integritycheck.shardMerge";
+
+    /**
+     * identifier of a sharded run, given to every shard and to the merge, so
+     * that the merge only combines the partial verdicts of this run
+     */
+    public static final String SHARD_RUN_ID = "integritycheck.shardRunId";
+
+    /**
+     * seconds the merge waits for the partial verdicts of the shards, by default
+     * the waiting period plus a margin for the shards to load the FAD and judge
+     */
+    public static final String SHARD_MERGE_TIMEOUT = "integritycheck.shardMergeTimeout";
+
+    private static final int SHARD_MERGE_MARGIN = 120;
+
+    /**
+     * directory of the compiled FAD snapshots, the FAD files are parsed on every run when not set
+     */
+    public static final String FAD_CACHE = "integritycheck.fadCache";
+
+    /**
+     * scenario properties file from which the FAD is generated, instead of the
+     * FAD files of TcParam.json, the same file is given to the SiSut
+     */
+    public static final String SCENARIO = "integritycheck.scenario";
+
+    /**
+     * JSON file of the {@link PipelineConfig}s, to judge several SuTs at once
+     * instead of the FAD of TcParam.json
+     */
+    public static final String PIPELINES = "integritycheck.pipelines";
+
+    /**
+     * duration in seconds of the monitoring that follows a passed judgment, 0 for none; requires {@link #RECEIVE_PORT}
+     */
+    public static final String SOAK_DURATION = "integritycheck.soakDuration";
+
+    /**
+     * seconds without update after which an entity is reported as timed out during the monitoring
+     */
+    public static final String SOAK_HEARTBEAT_TIMEOUT = "integritycheck.soakHeartbeatTimeout";
+
+    /**
+     * duration in seconds of the windows in which the monitoring events are counted
+     */
+    public static final String SOAK_WINDOW = "integritycheck.soakWindow";
+
+    /**
+     * DIS heartbeat of 5 seconds times the timeout multiplier of 2.4
+     */
+    private static final int DEFAULT_SOAK_HEARTBEAT_TIMEOUT = 12;
+    private static final int DEFAULT_SOAK_WINDOW = 60;
+
+    /**
+     * file where the received entity states are captured, for a later replay
+     */
+    public static final String CAPTURE = "integritycheck.capture";
+
+    /**
+     * capture file to judge instead of listening to the SuT, without waiting period
+     */
+    public static final String REPLAY = "integritycheck.replay";
+
+    private IntegrityCheckOptions() {
+    }
+
+    public static boolean isIncremental() {
+        return Boolean.getBoolean(INCREMENTAL);
+    }
+
+    public static boolean isNearestMatch() {
+        return Boolean.getBoolean(NEAREST_MATCH);
+    }
+
+    public static File getReportDir() {
+        return new File(System.getProperty(REPORT_DIR, System.getProperty("user.dir")));
+    }
+
+    public static int getConsoleFailures() {
+        return Integer.getInteger(CONSOLE_FAILURES, DEFAULT_CONSOLE_FAILURES);
+    }
+
+    public static int getMaxUnknownEntities() {
+        return Integer.getInteger(MAX_UNKNOWN_ENTITIES, FadVerifier.DEFAULT_MAX_UNKNOWN_ENTITIES);
+    }
+
+    public static int getReceivePort() {
+        return Integer.getInteger(RECEIVE_PORT, 0);
+    }
+
+    public static int getExerciseId() {
+        return Integer.getInteger(EXERCISE_ID, PduReceiver.ANY_EXERCISE);
+    }
+
+    public static int getSampleSize() {
+        return Integer.getInteger(SAMPLE_SIZE, 0);
+    }
+
+    /**
+     * @return the seed of the sample, from the clock when not given
+     */
+    public static long getSampleSeed() {
+        return Long.getLong(SAMPLE_SEED, System.nanoTime());
+    }
+
+    public static double getSampleConfidence() {
+        String confidence = System.getProperty(SAMPLE_CONFIDENCE);
+        return confidence == null ? DEFAULT_SAMPLE_CONFIDENCE : Double.parseDouble(confidence);
+    }
+
+    public static int getShardCount() {
+        return Integer.getInteger(SHARD_COUNT, 1);
+    }
+
+    public static int getShardIndex() {
+        return Integer.getInteger(SHARD_INDEX, 0);
+    }
+
+    public static File getShardDir() {
+        String shardDir = System.getProperty(SHARD_DIR);
+        return shardDir == null ? getReportDir() : new File(shardDir);
+    }
+
+    public static boolean isShardMerge() {
+        return Boolean.getBoolean(SHARD_MERGE);
+    }
+
+    /**
+     * @return the identifier of the sharded run, null when not set
+     */
+    public static String getShardRunId() {
+        String runId = System.getProperty(SHARD_RUN_ID);
+        return runId == null || runId.trim().isEmpty() ? null : runId.trim();
+    }
+
+    /**
+     * @param waitingPeriod waiting period of the shards in seconds
+     * @return seconds the merge waits for the partial verdicts
+     */
+    public static int getShardMergeTimeout(int waitingPeriod) {
+        return Integer.getInteger(SHARD_MERGE_TIMEOUT, waitingPeriod + SHARD_MERGE_MARGIN);
+    }
+
+    /**
+     * @return the FAD snapshot cache directory, null when the FAD files are always parsed
+     */
+    public static File getFadCacheDir() {
+        String fadCache = System.getProperty(FAD_CACHE);
+        return fadCache == null ? null : new File(fadCache);
+    }
+
+    /**
+     * @return the scenario properties file, null when the FAD files of TcParam.json are loaded
+     */
+    public static File getScenarioFile() {
+        String scenario = System.getProperty(SCENARIO);
+        return scenario == null ? null : new File(scenario);
+    }
+
+    /**
+     * @return the pipelines configuration file, null when the FAD of TcParam.json is judged
+     */
+    public static File getPipelineFile() {
+        String pipelines = System.getProperty(PIPELINES);
+        return pipelines == null ? null : new File(pipelines);
+    }
+
+    public static int getSoakDuration() {
+        return Integer.getInteger(SOAK_DURATION, 0);
+    }
+
+    public static int getSoakHeartbeatTimeout() {
+        return Integer.getInteger(SOAK_HEARTBEAT_TIMEOUT, DEFAULT_SOAK_HEARTBEAT_TIMEOUT);
+    }
+
+    public static int getSoakWindow() {
+        return Integer.getInteger(SOAK_WINDOW, DEFAULT_SOAK_WINDOW);
+    }
+
+    /**
+     * @return the capture file, null when the received entities are not captured
+     */
+    public static File getCaptureFile() {
+        String capture = System.getProperty(CAPTURE);
+        return capture == null ? null : new File(capture);
+    }
+
+    /**
+     * @return the capture file to replay, null when the SuT is judged live
+     */
+    public static File getReplayFile() {
+        String replay = System.getProperty(REPLAY);
+        return replay == null ? null : new File(replay);
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * Histogram of durations with power of two buckets, in microseconds.
+ *
+ * Bucket i counts the durations below 2^i microseconds that are not in a lower
+ * bucket. Recording does not allocate and the memory is fixed whatever the
+ * number of values.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 48;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long minMicros = Long.MAX_VALUE;
+    private long maxMicros;
+    private long sumMicros;
+
+    /**
+     * @param nanos duration to record, in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts[bucket]++;
+        count++;
+        sumMicros += micros;
+        minMicros = Math.min(minMicros, micros);
+        maxMicros = Math.max(maxMicros, micros);
+    }
+
+    /**
+     * @param other histogram whose durations are added to this one
+     */
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        count += other.count;
+        sumMicros += other.sumMicros;
+        minMicros = Math.min(minMicros, other.minMicros);
+        maxMicros = Math.max(maxMicros, other.maxMicros);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound in microseconds of the bucket holding the percentile, 0 if empty
+     */
+    public long getPercentileMicros(double percentile) {
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank && seen > 0) {
+                return Math.min(maxMicros, upperBoundMicros(bucket));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return count, min, mean, max and percentiles in milliseconds, and the non empty buckets
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("count", count);
+        json.put("minMs", count == 0 ? 0 : minMicros / 1000.0);
+        json.put("meanMs", count == 0 ? 0 : sumMicros / 1000.0 / count);
+        json.put("p50Ms", getPercentileMicros(50) / 1000.0);
+        json.put("p90Ms", getPercentileMicros(90) / 1000.0);
+        json.put("p99Ms", getPercentileMicros(99) / 1000.0);
+        json.put("maxMs", maxMicros / 1000.0);
+        JSONArray buckets = new JSONArray();
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (counts[bucket] > 0) {
+                JSONObject jsonBucket = new JSONObject();
+                jsonBucket.put("upperBoundMs", upperBoundMicros(bucket) / 1000.0);
+                jsonBucket.put("count", counts[bucket]);
+                buckets.add(jsonBucket);
+            }
+        }
+        json.put("buckets", buckets);
+        return json;
+    }
+
+    private static long upperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+}
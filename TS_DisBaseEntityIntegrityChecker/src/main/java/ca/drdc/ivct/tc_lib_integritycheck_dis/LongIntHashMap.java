@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.Arrays;
+
+import ca.drdc.ivct.scenario.EntityKey;
+
+/**
+ * Open addressing hash map from {@link EntityKey} keys to non negative int
+ * values, typically an ordinal in the FAD.
+ *
+ * Keys and values are kept in two primitive arrays with linear probing, lookups
+ * do not allocate. Keys must not be negative, entries cannot be removed.
+ */
+public class LongIntHashMap {
+
+    /**
+     * returned when a key is not in the map
+     */
+    public static final int NO_VALUE = -1;
+
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of entries expected, the table never has to grow below it
+     */
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @param key the key
+     * @return the value mapped to the key or {@link #NO_VALUE}
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == EMPTY) {
+                return NO_VALUE;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * @param key the key, not negative
+     * @param value the value, not negative
+     * @return the previous value mapped to the key or {@link #NO_VALUE}
+     */
+    public int put(long key, int value) {
+        return insert(key, value, true);
+    }
+
+    /**
+     * @param key the key, not negative
+     * @param value the value, not negative
+     * @return the value already mapped to the key, or {@link #NO_VALUE} if the value was inserted
+     */
+    public int putIfAbsent(long key, int value) {
+        return insert(key, value, false);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int insert(long key, int value, boolean replace) {
+        if (key < 0 || value < 0) {
+            throw new IllegalArgumentException("Negative key or value: " + key + ", " + value);
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                int previous = values[slot];
+                if (replace) {
+                    values[slot] = value;
+                }
+                return previous;
+            }
+            if (current == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > (mask + 1) / 2) {
+                    rehash();
+                }
+                return NO_VALUE;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private int slot(long key) {
+        // murmur3 finalizer, spreads the packed site/application/entity bits
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
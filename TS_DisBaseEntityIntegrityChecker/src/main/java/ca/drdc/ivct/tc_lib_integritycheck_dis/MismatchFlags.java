@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.StringJoiner;
+
+/**
+ * Bits of the per entity comparison result. A result of 0 means the received
+ * entity matches the FAD entity on every checked field.
+ */
+public final class MismatchFlags {
+
+    public static final int WORLD_LOCATION = 1;
+    public static final int FROZEN = 1 << 1;
+    public static final int ORIENTATION = 1 << 2;
+    public static final int VELOCITY = 1 << 3;
+    public static final int DEAD_RECKONING = 1 << 4;
+    public static final int ENTITY_TYPE = 1 << 5;
+    public static final int NOT_RECEIVED = 1 << 6;
+
+    /**
+     * set on the outcome of a received entity that is not in the FAD, never in the
+     * per FAD entity results which are stored as bytes
+     */
+    public static final int NOT_IN_FAD = 1 << 7;
+
+    /**
+     * mismatches that fail the test
+     */
+    public static final int FAILURES = WORLD_LOCATION | FROZEN | ENTITY_TYPE | NOT_RECEIVED | NOT_IN_FAD;
+
+    /**
+     * mismatches that are only reported as warnings
+     */
+    public static final int WARNINGS = ORIENTATION | VELOCITY | DEAD_RECKONING;
+
+    private static final String[] NAMES = {"worldLocation", "frozen", "orientation", "velocity", "deadReckoning",
+            "entityType", "notReceived", "notInFad"};
+
+    private MismatchFlags() {
+    }
+
+    public static boolean isFailure(int mask) {
+        return (mask & FAILURES) != 0;
+    }
+
+    public static boolean isWarning(int mask) {
+        return (mask & WARNINGS) != 0;
+    }
+
+    /**
+     * @param mask comparison result
+     * @return the names of the mismatching fields, separated by commas
+     */
+    public static String toString(int mask) {
+        StringJoiner names = new StringJoiner(",");
+        for (int bit = 0; bit < NAMES.length; bit++) {
+            if ((mask & (1 << bit)) != 0) {
+                names.add(NAMES[bit]);
+            }
+        }
+        return names.toString();
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ObjLongConsumer;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Reads a capture file written by {@link PduCaptureWriter}, the records are
+ * decoded from a read only memory mapping of the file.
+ */
+public class PduCaptureReader implements Closeable {
+
+    private final File file;
+    private final FileChannel channel;
+    private final long size;
+
+    /**
+     * @param file the capture file
+     * @throws IOException if the file cannot be opened or is not a capture
+     */
+    public PduCaptureReader(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, PduCaptureWriter.HEADER_SIZE));
+        if (size < PduCaptureWriter.HEADER_SIZE || header.getInt() != PduCaptureWriter.MAGIC) {
+            channel.close();
+            throw new IOException(file + " is not a PDU capture");
+        }
+        int version = header.getInt();
+        if (version != PduCaptureWriter.VERSION) {
+            channel.close();
+            throw new IOException(file + " has the unsupported capture version " + version);
+        }
+    }
+
+    /**
+     * Decode every record of the capture, in the order they were received.
+     *
+     * @param consumer receives each PDU with its receive time in nanoseconds
+     * @return number of records read
+     * @throws IOException if the file cannot be read, or has a truncated or corrupt record
+     */
+    public long replay(ObjLongConsumer<EntityStatePdu> consumer) throws IOException {
+        long count = 0;
+        long regionStart = PduCaptureWriter.HEADER_SIZE;
+        MappedByteBuffer region = map(regionStart);
+        while (true) {
+            if (region.remaining() < PduCaptureWriter.RECORD_HEADER_SIZE) {
+                if (regionStart + region.limit() >= size) {
+                    break;
+                }
+                regionStart += region.position();
+                region = map(regionStart);
+                continue;
+            }
+            int recordStart = region.position();
+            long receiveNanos = region.getLong();
+            int length = region.getInt();
+            if (length <= 0) {
+                // end of a capture that was not closed
+                break;
+            }
+            if (length > PduCaptureWriter.REGION_SIZE - PduCaptureWriter.RECORD_HEADER_SIZE) {
+                // the record would never fit in a region, mapping it again would not progress
+                throw new IOException(file + " has a corrupt record length " + length + " at offset "
+                        + (regionStart + recordStart));
+            }
+            if (regionStart + region.position() + length > size) {
+                throw new IOException(file + " ends with a truncated record at offset " + (regionStart + recordStart));
+            }
+            if (region.remaining() < length) {
+                regionStart += recordStart;
+                region = map(regionStart);
+                continue;
+            }
+            int recordEnd = region.position() + length;
+            int limit = region.limit();
+            region.limit(recordEnd);
+            EntityStatePdu pdu = new EntityStatePdu();
+            pdu.unmarshal(region);
+            region.limit(limit);
+            region.position(recordEnd);
+            consumer.accept(pdu, receiveNanos);
+            count++;
+        }
+        return count;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private MappedByteBuffer map(long position) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(PduCaptureWriter.REGION_SIZE, size - position));
+    }
+}
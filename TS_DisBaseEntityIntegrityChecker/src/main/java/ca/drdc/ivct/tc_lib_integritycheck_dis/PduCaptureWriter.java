@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Appends received entity states to a capture file, replayed by {@link PduCaptureReader}.
+ *
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, followed by one
+ * record per PDU: the receive time in nanoseconds (long), the length of the PDU
+ * (int) and the PDU as marshalled on the wire. The file is written through a
+ * memory mapped region that is moved forward as it fills up, so appending is a
+ * copy in memory and the operating system writes the pages in the background.
+ * A record of length 0 marks the end of the capture when the file was not
+ * closed.
+ */
+public class PduCaptureWriter implements Closeable {
+
+    static final int MAGIC = 0x44495343; // "DISC"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 12;
+
+    /**
+     * size of the mapped region, larger than any PDU
+     */
+    static final int REGION_SIZE = 16 * 1024 * 1024;
+
+    private final File file;
+    private final FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long recordCount;
+
+    /**
+     * @param file the capture file, replaced if it exists
+     * @throws IOException if the file cannot be created
+     */
+    public PduCaptureWriter(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        map(0);
+        region.putInt(MAGIC).putInt(VERSION);
+    }
+
+    /**
+     * @param receiveNanos System.nanoTime() when the PDU was received
+     * @param pdu the PDU, not modified
+     * @throws IOException if the file cannot be extended
+     */
+    public void append(long receiveNanos, EntityStatePdu pdu) throws IOException {
+        int size = pdu.getMarshalledSize();
+        if (region.remaining() < RECORD_HEADER_SIZE + size) {
+            map(regionStart + region.position());
+        }
+        region.putLong(receiveNanos).putInt(size);
+        pdu.marshal(region);
+        recordCount++;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Truncate the file after the last record and close it.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            region.force();
+            channel.truncate(regionStart + region.position());
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void map(long position) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_SIZE);
+        regionStart = position;
+    }
+}
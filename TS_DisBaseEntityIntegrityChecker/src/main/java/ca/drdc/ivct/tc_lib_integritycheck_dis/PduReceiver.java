@@ -0,0 +1,338 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ObjLongConsumer;
+
+import org.slf4j.Logger;
+
+import ca.drdc.ivct.scenario.EntityKey;
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Receives the entity states of the SuT on its own UDP socket, instead of the
+ * generic DIS receiver of the test case.
+ *
+ * The socket owns its port, it must not be the port of the DIS plugin
+ * receiver: sharing it would decode every PDU twice, and unicast datagrams
+ * are only delivered to one of the sockets. A datagram may bundle several
+ * PDUs, each one is split from the PDU length of its header.
+ *
+ * Three threads hand datagrams over through {@link SpscRing}s:
+ * <ul>
+ * <li>the receive thread reads each datagram into a pooled direct buffer and
+ * drops it from the header bytes alone when none of its PDUs is an EntityState
+ * PDU of the exercise whose entity is judged by this shard,</li>
+ * <li>the decode thread unmarshals the PDUs kept and returns the buffers to the
+ * pool,</li>
+ * <li>the test thread gets the decoded entity states with {@link #drain(ObjLongConsumer)}.</li>
+ * </ul>
+ * When every buffer is in use the receive thread stops reading and the
+ * datagrams wait in the socket receive buffer.
+ */
+public class PduReceiver implements Closeable {
+
+    /**
+     * any exercise identifier
+     */
+    public static final int ANY_EXERCISE = -1;
+
+    private static final int ENTITY_STATE_PDU_TYPE = 1;
+    private static final int PDU_HEADER_SIZE = 12;
+    private static final int PDU_LENGTH_OFFSET = 8;
+    private static final int ENTITY_ID_END = PDU_HEADER_SIZE + 6;
+    private static final int MAX_PDU_SIZE = 8192;
+    private static final int POOL_SIZE = 1024;
+    private static final int DECODED_CAPACITY = 65536;
+    private static final int SOCKET_RECEIVE_BUFFER = 4 * 1024 * 1024;
+    private static final long IDLE_PARK_NANOS = 50_000;
+    private static final long SELECT_TIMEOUT_MS = 100;
+
+    private final int exerciseId;
+    private final int shardIndex;
+    private final int shardCount;
+    private final Logger logger;
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final SpscRing<Datagram> free = new SpscRing<>(POOL_SIZE);
+    private final SpscRing<Datagram> filled = new SpscRing<>(POOL_SIZE);
+    private final SpscRing<ReceivedPdu> decoded = new SpscRing<>(DECODED_CAPACITY);
+    private final AtomicLong datagramCount = new AtomicLong();
+    private final AtomicLong filteredCount = new AtomicLong();
+    private final AtomicLong malformedCount = new AtomicLong();
+    private final Thread receiveThread;
+    private final Thread decodeThread;
+    private volatile boolean running = true;
+
+    /**
+     * Bind the socket and start receiving.
+     *
+     * @param port UDP port on which the SuT sends the entity states, other than the port of the DIS plugin
+     * @param exerciseId exercise identifier to keep, {@link #ANY_EXERCISE} to keep all
+     * @param logger the logger
+     * @throws IOException if the socket cannot be bound
+     */
+    public PduReceiver(int port, int exerciseId, Logger logger) throws IOException {
+        this(port, exerciseId, 0, 1, logger);
+    }
+
+    /**
+     * Bind the socket and start receiving the entity states of one shard.
+     *
+     * @param port UDP port on which the SuT sends the entity states, other than the port of the DIS plugin
+     * @param exerciseId exercise identifier to keep, {@link #ANY_EXERCISE} to keep all
+     * @param shardIndex shard of the entities to keep, see {@link EntityKey#shardOf(long, int)}
+     * @param shardCount number of shards, 1 to keep every entity
+     * @param logger the logger
+     * @throws IOException if the socket cannot be bound, e.g. when another socket uses the port
+     */
+    public PduReceiver(int port, int exerciseId, int shardIndex, int shardCount, Logger logger) throws IOException {
+        this.exerciseId = exerciseId;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.logger = logger;
+        this.channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_RECEIVE_BUFFER);
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port));
+        this.selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+
+        ByteBuffer pool = ByteBuffer.allocateDirect(POOL_SIZE * MAX_PDU_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            pool.limit((i + 1) * MAX_PDU_SIZE).position(i * MAX_PDU_SIZE);
+            free.offer(new Datagram(pool.slice()));
+        }
+
+        this.receiveThread = new Thread(this::receive, "pdu-receiver");
+        this.decodeThread = new Thread(this::decode, "pdu-decoder");
+        receiveThread.setDaemon(true);
+        decodeThread.setDaemon(true);
+        receiveThread.start();
+        decodeThread.start();
+    }
+
+    /**
+     * Hand the entity states decoded so far to the consumer, on the calling thread.
+     * Only one thread may drain.
+     *
+     * @param consumer receives each entity state with its receive time in nanoseconds
+     * @return number of entity states drained
+     */
+    public int drain(ObjLongConsumer<EntityStatePdu> consumer) {
+        int count = 0;
+        ReceivedPdu next;
+        while ((next = decoded.poll()) != null) {
+            consumer.accept(next.getPdu(), next.getReceiveNanos());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of datagrams read from the socket
+     */
+    public long getDatagramCount() {
+        return datagramCount.get();
+    }
+
+    /**
+     * @return number of PDUs dropped because they are not EntityState PDUs of the exercise or of the shard
+     */
+    public long getFilteredCount() {
+        return filteredCount.get();
+    }
+
+    /**
+     * @return number of PDUs that could not be decoded, and of datagrams whose PDU headers are malformed
+     */
+    public long getMalformedCount() {
+        return malformedCount.get();
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Stop the threads and close the socket, the entity states already decoded can still be drained.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            receiveThread.join();
+            decodeThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            selector.close();
+            channel.close();
+        }
+    }
+
+    private void receive() {
+        // the decode thread is the only producer of the free ring, a datagram that
+        // is dropped is kept here for the next read instead of being returned
+        Datagram current = null;
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MS);
+                selector.selectedKeys().clear();
+                while (running) {
+                    if (current == null && (current = free.poll()) == null) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                        break;
+                    }
+                    ByteBuffer buffer = current.buffer;
+                    buffer.clear();
+                    if (channel.receive(buffer) == null) {
+                        break;
+                    }
+                    current.receiveNanos = System.nanoTime();
+                    datagramCount.incrementAndGet();
+                    buffer.flip();
+                    if (filter(buffer)) {
+                        filled.offer(current);
+                        current = null;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                logger.error("PDU receiver stopped", e);
+            }
+        }
+    }
+
+    /**
+     * Count the PDUs of a datagram that are dropped.
+     *
+     * @param buffer the datagram
+     * @return whether at least one PDU of the datagram is kept
+     */
+    private boolean filter(ByteBuffer buffer) {
+        boolean kept = false;
+        int end = buffer.limit();
+        int offset = 0;
+        while (offset < end) {
+            int length = pduLength(buffer, offset, end);
+            if (length == 0) {
+                malformedCount.incrementAndGet();
+                break;
+            }
+            if (isEntityState(buffer, offset, length)) {
+                kept = true;
+            } else {
+                filteredCount.incrementAndGet();
+            }
+            offset += length;
+        }
+        return kept;
+    }
+
+    /**
+     * @return length of the PDU at the offset, or 0 when its header is malformed or the PDU is truncated
+     */
+    private static int pduLength(ByteBuffer buffer, int offset, int end) {
+        if (end - offset < PDU_HEADER_SIZE) {
+            return 0;
+        }
+        int length = buffer.getShort(offset + PDU_LENGTH_OFFSET) & 0xFFFF;
+        return length < PDU_HEADER_SIZE || length > end - offset ? 0 : length;
+    }
+
+    private boolean isEntityState(ByteBuffer buffer, int offset, int length) {
+        // header: protocol version, exercise identifier, PDU type, protocol family
+        if ((buffer.get(offset + 2) & 0xFF) != ENTITY_STATE_PDU_TYPE
+                || (exerciseId != ANY_EXERCISE && (buffer.get(offset + 1) & 0xFF) != exerciseId)) {
+            return false;
+        }
+        if (shardCount > 1 && length >= ENTITY_ID_END) {
+            // entity identifier: site, application, entity
+            int entityId = offset + PDU_HEADER_SIZE;
+            long key = EntityKey.of(buffer.getShort(entityId), buffer.getShort(entityId + 2),
+                    buffer.getShort(entityId + 4));
+            return EntityKey.shardOf(key, shardCount) == shardIndex;
+        }
+        return true;
+    }
+
+    private void decode() {
+        while (running || filled.size() > 0) {
+            Datagram datagram = filled.poll();
+            if (datagram == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            ByteBuffer buffer = datagram.buffer;
+            int end = buffer.limit();
+            int offset = 0;
+            int length;
+            while (offset < end && (length = pduLength(buffer, offset, end)) > 0) {
+                if (isEntityState(buffer, offset, length)) {
+                    buffer.limit(offset + length).position(offset);
+                    publish(buffer, datagram.receiveNanos);
+                    buffer.limit(end);
+                }
+                offset += length;
+            }
+            free.offer(datagram);
+        }
+    }
+
+    /**
+     * Decode the PDU between the position and the limit of the buffer and hand it to the test thread.
+     */
+    private void publish(ByteBuffer buffer, long receiveNanos) {
+        EntityStatePdu pdu = new EntityStatePdu();
+        try {
+            pdu.unmarshal(buffer);
+        } catch (RuntimeException e) {
+            malformedCount.incrementAndGet();
+            return;
+        }
+        ReceivedPdu entry = new ReceivedPdu(pdu, receiveNanos);
+        // once closed, the entity states that cannot be drained are dropped
+        while (!decoded.offer(entry) && running) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * pooled receive buffer
+     */
+    private static final class Datagram {
+        private final ByteBuffer buffer;
+        private long receiveNanos;
+
+        private Datagram(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Configuration of one {@link CheckingPipeline}: which received entities it
+ * judges and against which FAD.
+ *
+ * The pipelines are read from a JSON file whose entries use the "fadFiles"
+ * and "thresholds" of TcParam.json:
+ * <pre>
+ * { "pipelines": [
+ *   { "name": "SuT-A", "exerciseId": 1, "site": 1, "application": 2,
+ *     "fadFiles": [ { "fileName": "sut-a/fad.csv" } ],
+ *     "thresholds": { "worldLocation": 0.001, "orientation": 0.0001, ... } }
+ * ] }
+ * </pre>
+ * A missing exerciseId, site or application matches any value, a missing
+ * threshold is the one of TcParam.json. Relative file names are resolved
+ * against the directory of the configuration file.
+ */
+public class PipelineConfig {
+
+    public static final int ANY = -1;
+
+    private final String name;
+    private final int exerciseId;
+    private final int site;
+    private final int application;
+    private final List<URL> fadUrls;
+    private final Map<String, Number> thresholds;
+
+    public PipelineConfig(String name, int exerciseId, int site, int application, List<URL> fadUrls,
+            Map<String, Number> thresholds) {
+        this.name = name;
+        this.exerciseId = exerciseId;
+        this.site = site;
+        this.application = application;
+        this.fadUrls = fadUrls;
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * @param file the JSON configuration file
+     * @return the pipelines, in the order of the file
+     * @throws IOException if the file cannot be read or is not a valid configuration
+     */
+    public static List<PipelineConfig> load(File file) throws IOException {
+        Object root;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            root = new JSONParser().parse(reader);
+        } catch (ParseException e) {
+            throw new IOException("Invalid JSON in " + file + ": " + e, e);
+        }
+        if (!(root instanceof JSONObject) || !(((JSONObject) root).get("pipelines") instanceof JSONArray)) {
+            throw new IOException(file + " has no \"pipelines\" array");
+        }
+        File baseDir = file.getAbsoluteFile().getParentFile();
+        List<PipelineConfig> pipelines = new ArrayList<>();
+        for (Object entry : (JSONArray) ((JSONObject) root).get("pipelines")) {
+            pipelines.add(parse((JSONObject) entry, baseDir, file));
+        }
+        return pipelines;
+    }
+
+    private static PipelineConfig parse(JSONObject entry, File baseDir, File file) throws IOException {
+        Object name = entry.get("name");
+        if (name == null) {
+            throw new IOException("A pipeline of " + file + " has no name");
+        }
+        List<URL> fadUrls = new ArrayList<>();
+        Object fadFiles = entry.get("fadFiles");
+        if (fadFiles instanceof JSONArray) {
+            for (Object fadFile : (JSONArray) fadFiles) {
+                Object fileName = ((JSONObject) fadFile).get("fileName");
+                File fad = new File(String.valueOf(fileName));
+                if (!fad.isAbsolute()) {
+                    fad = new File(baseDir, fad.getPath());
+                }
+                fadUrls.add(fad.toURI().toURL());
+            }
+        }
+        if (fadUrls.isEmpty()) {
+            throw new IOException("The pipeline " + name + " of " + file + " has no fadFiles");
+        }
+        Map<String, Number> thresholds = new HashMap<>();
+        Object thresholdObject = entry.get("thresholds");
+        if (thresholdObject instanceof JSONObject) {
+            for (Object threshold : ((JSONObject) thresholdObject).entrySet()) {
+                Map.Entry<?, ?> thresholdEntry = (Map.Entry<?, ?>) threshold;
+                if (thresholdEntry.getValue() instanceof Number) {
+                    thresholds.put(String.valueOf(thresholdEntry.getKey()), (Number) thresholdEntry.getValue());
+                }
+            }
+        }
+        return new PipelineConfig(name.toString(), intValue(entry, "exerciseId"), intValue(entry, "site"),
+                intValue(entry, "application"), fadUrls, thresholds);
+    }
+
+    private static int intValue(JSONObject entry, String key) {
+        Object value = entry.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : ANY;
+    }
+
+    /**
+     * @param pdu a received entity state
+     * @return true if the entity state is routed to this pipeline
+     */
+    public boolean matches(EntityStatePdu pdu) {
+        return (exerciseId == ANY || pdu.getExerciseID() == exerciseId)
+                && (site == ANY || pdu.getEntityID().getSite() == site)
+                && (application == ANY || pdu.getEntityID().getApplication() == application);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<URL> getFadUrls() {
+        return fadUrls;
+    }
+
+    public Map<String, Number> getThresholds() {
+        return thresholds;
+    }
+}
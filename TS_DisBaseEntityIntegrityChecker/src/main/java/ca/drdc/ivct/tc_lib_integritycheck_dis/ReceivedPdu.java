@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * An entity state with the time it was received, as handed between threads.
+ */
+public final class ReceivedPdu {
+
+    private final EntityStatePdu pdu;
+    private final long receiveNanos;
+
+    /**
+     * @param pdu the entity state
+     * @param receiveNanos System.nanoTime() when it was received
+     */
+    public ReceivedPdu(EntityStatePdu pdu, long receiveNanos) {
+        this.pdu = pdu;
+        this.receiveNanos = receiveNanos;
+    }
+
+    public EntityStatePdu getPdu() {
+        return pdu;
+    }
+
+    public long getReceiveNanos() {
+        return receiveNanos;
+    }
+}
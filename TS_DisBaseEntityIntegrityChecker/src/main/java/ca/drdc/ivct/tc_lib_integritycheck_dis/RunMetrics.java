@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+
+/**
+ * Timing and throughput of one run of the test case, written as a JSON file
+ * next to the verdict.
+ */
+public class RunMetrics {
+
+    /**
+     * phases of the test case
+     */
+    public enum Phase {
+        FAD_LOAD("fadLoad"), WAITING("waiting"), COMPARE("compare"), SOAK("soak");
+
+        private final String jsonName;
+
+        Phase(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private final LatencyHistogram matchLatency = new LatencyHistogram();
+    private long pdusReceived;
+    private long duplicatesDiscarded;
+    private long firstPduNanos;
+    private long lastPduNanos;
+    private long lastMatchNanos;
+    private SampleEstimate sampleEstimate;
+
+    /**
+     * @param phase the phase
+     * @param nanos time spent in the phase, added to the previous time of the phase
+     */
+    public void recordPhase(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * @param receiveNanos System.nanoTime() when the PDU was received
+     * @param duplicate true if the entity was already received
+     */
+    public void recordPdu(long receiveNanos, boolean duplicate) {
+        if (pdusReceived == 0) {
+            firstPduNanos = receiveNanos;
+        }
+        pdusReceived++;
+        lastPduNanos = receiveNanos;
+        if (duplicate) {
+            duplicatesDiscarded++;
+        }
+    }
+
+    /**
+     * @param receiveNanos System.nanoTime() when the first instance of a FAD entity was received
+     */
+    public void recordFadMatch(long receiveNanos) {
+        matchLatency.record(receiveNanos - firstPduNanos);
+        lastMatchNanos = Math.max(lastMatchNanos, receiveNanos);
+    }
+
+    /**
+     * Add the PDUs and FAD matches of a pipeline to the metrics of the run. The
+     * FAD matches stay timed from the first PDU of their pipeline.
+     *
+     * @param other metrics of one pipeline, no longer updated
+     */
+    public void add(RunMetrics other) {
+        if (other.pdusReceived == 0) {
+            return;
+        }
+        firstPduNanos = pdusReceived == 0 ? other.firstPduNanos : Math.min(firstPduNanos, other.firstPduNanos);
+        lastPduNanos = pdusReceived == 0 ? other.lastPduNanos : Math.max(lastPduNanos, other.lastPduNanos);
+        pdusReceived += other.pdusReceived;
+        duplicatesDiscarded += other.duplicatesDiscarded;
+        matchLatency.add(other.matchLatency);
+        lastMatchNanos = Math.max(lastMatchNanos, other.lastMatchNanos);
+    }
+
+    /**
+     * @param sampleEstimate estimate of the mismatch rate when a sample of the FAD was judged
+     */
+    public void setSampleEstimate(SampleEstimate sampleEstimate) {
+        this.sampleEstimate = sampleEstimate;
+    }
+
+    public long getPdusReceived() {
+        return pdusReceived;
+    }
+
+    public long getDuplicatesDiscarded() {
+        return duplicatesDiscarded;
+    }
+
+    public long getFadMatches() {
+        return matchLatency.getCount();
+    }
+
+    /**
+     * @return PDUs received per second between the first and the last PDU
+     */
+    public double getPdusPerSecond() {
+        long elapsed = lastPduNanos - firstPduNanos;
+        return elapsed <= 0 ? pdusReceived : pdusReceived * 1e9 / elapsed;
+    }
+
+    /**
+     * @param testCase name of the test case
+     * @param verdict verdict of the run
+     * @return the metrics
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject toJson(String testCase, String verdict) {
+        JSONObject phases = new JSONObject();
+        for (Phase phase : Phase.values()) {
+            phases.put(phase.jsonName + "Ms", TimeUnit.NANOSECONDS.toMillis(phaseNanos[phase.ordinal()]));
+        }
+        JSONObject json = new JSONObject();
+        json.put("testCase", testCase);
+        json.put("verdict", verdict);
+        json.put("timestamp", System.currentTimeMillis());
+        json.put("phases", phases);
+        json.put("pdusReceived", pdusReceived);
+        json.put("pdusPerSecond", getPdusPerSecond());
+        json.put("duplicatesDiscarded", duplicatesDiscarded);
+        json.put("firstPduToLastFadMatchMs",
+                matchLatency.getCount() == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(lastMatchNanos - firstPduNanos));
+        json.put("fadMatchLatency", matchLatency.toJson());
+        if (sampleEstimate != null) {
+            json.put("sample", sampleEstimate.toJson());
+        }
+        return json;
+    }
+
+    /**
+     * @param file the JSON file to write
+     * @param testCase name of the test case
+     * @param verdict verdict of the run
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file, String testCase, String verdict) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            toJson(testCase, verdict).writeJSONString(writer);
+        }
+    }
+
+    /**
+     * Write the metrics, a failure is only logged.
+     *
+     * @param file the JSON file to write
+     * @param testCase name of the test case
+     * @param verdict verdict of the run
+     * @param logger the logger
+     */
+    public void write(File file, String testCase, String verdict, Logger logger) {
+        try {
+            write(file, testCase, verdict);
+            logger.info("Run metrics written to {}", file);
+        } catch (IOException e) {
+            logger.warn("Could not write the run metrics to {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Estimate of the mismatch rate of the whole FAD from the mismatches of a
+ * random sample of its entities.
+ *
+ * The bounds are the Wilson score interval at the given confidence, which
+ * stays meaningful when no mismatch is found in the sample: the upper bound is
+ * then the highest mismatch rate of the FAD that the sample does not rule out.
+ */
+public class SampleEstimate {
+
+    private final int sampleSize;
+    private final int mismatches;
+    private final int population;
+    private final double confidence;
+    private final long seed;
+    private final double lower;
+    private final double upper;
+
+    /**
+     * @param sampleSize number of FAD entities judged
+     * @param mismatches number of judged entities that failed
+     * @param population number of FAD entities
+     * @param confidence two-sided confidence level of the bounds, between 0 and 1
+     * @param seed seed of the sample, to judge the same sample again
+     */
+    public SampleEstimate(int sampleSize, int mismatches, int population, double confidence, long seed) {
+        this.sampleSize = sampleSize;
+        this.mismatches = mismatches;
+        this.population = population;
+        this.confidence = confidence;
+        this.seed = seed;
+
+        if (sampleSize == 0) {
+            this.lower = 0;
+            this.upper = 1;
+            return;
+        }
+        double z = normalQuantile(0.5 + confidence / 2);
+        double n = sampleSize;
+        double rate = getRate();
+        double center = (rate + z * z / (2 * n)) / (1 + z * z / n);
+        double halfWidth = z / (1 + z * z / n) * Math.sqrt(rate * (1 - rate) / n + z * z / (4 * n * n));
+        this.lower = Math.max(0, center - halfWidth);
+        this.upper = Math.min(1, center + halfWidth);
+    }
+
+    /**
+     * @return the mismatch rate of the sample
+     */
+    public double getRate() {
+        return sampleSize == 0 ? 0 : (double) mismatches / sampleSize;
+    }
+
+    public double getLower() {
+        return lower;
+    }
+
+    public double getUpper() {
+        return upper;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * @return the estimate as written in the run metrics
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("seed", seed);
+        json.put("size", sampleSize);
+        json.put("population", population);
+        json.put("mismatches", mismatches);
+        json.put("mismatchRate", getRate());
+        json.put("confidence", confidence);
+        json.put("lowerBound", lower);
+        json.put("upperBound", upper);
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d mismatches in a sample of %d of %d FAD entities (seed %d), mismatch rate %.4f%%, "
+                + "%.4f%% to %.4f%% at %.1f%% confidence, %.0f to %.0f FAD entities", mismatches, sampleSize,
+                population, seed, 100 * getRate(), 100 * lower, 100 * upper, 100 * confidence,
+                Math.floor(lower * population), Math.ceil(upper * population));
+    }
+
+    /**
+     * Inverse of the standard normal distribution, by the rational approximation
+     * of Abramowitz and Stegun 26.2.23 (absolute error below 4.5e-4).
+     *
+     * @param p probability, between 0 and 1 excluded
+     * @return the quantile
+     */
+    static double normalQuantile(double p) {
+        double q = Math.min(p, 1 - p);
+        double t = Math.sqrt(-2 * Math.log(q));
+        double x = t - (2.515517 + 0.802853 * t + 0.010328 * t * t)
+                / (1 + 1.432788 * t + 0.189269 * t * t + 0.001308 * t * t * t);
+        return p < 0.5 ? -x : x;
+    }
+}
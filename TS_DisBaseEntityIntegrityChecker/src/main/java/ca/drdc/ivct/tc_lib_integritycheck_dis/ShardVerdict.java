@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import ca.drdc.ivct.scenario.EntityKey;
+import de.fraunhofer.iosb.tc_lib.TcInconclusive;
+
+/**
+ * Partial verdict of one checker process of a sharded run, written as a JSON
+ * file in the shard directory and combined by {@link ShardVerdictMerge}.
+ *
+ * The counts are those of the entities of the shard, see
+ * {@link EntityKey#shardOf(long, int)}, summed over the verifiers of the process.
+ */
+public class ShardVerdict {
+
+    private final String runId;
+    private final int shardIndex;
+    private final int shardCount;
+    private final String verdict;
+    private long judged;
+    private long failed;
+    private long notReceived;
+    private long notInFad;
+    private long warnings;
+    private long receivedPdus;
+    private final List<String> reports = new ArrayList<>();
+
+    /**
+     * @param runId identifier of the sharded run, see {@link #isValidRunId(String)}
+     * @param shardIndex shard of the process
+     * @param shardCount number of shards of the run
+     * @param verdict {@link CheckingPipeline#PASSED}, {@link CheckingPipeline#FAILED} or
+     * {@link CheckingPipeline#INCONCLUSIVE}
+     */
+    public ShardVerdict(String runId, int shardIndex, int shardCount, String verdict) {
+        this.runId = runId;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.verdict = verdict;
+    }
+
+    /**
+     * @param runId identifier of the sharded run
+     * @param shardIndex shard of the process
+     * @param shardCount number of shards of the run
+     * @return name of the partial verdict file of the shard
+     */
+    public static String fileName(String runId, int shardIndex, int shardCount) {
+        return "shard-" + runId + "-" + shardIndex + "-of-" + shardCount + ".json";
+    }
+
+    /**
+     * @param runId identifier of a sharded run
+     * @return true when the identifier can be part of a file name: letters, digits, '.', '_' and '-'
+     */
+    public static boolean isValidRunId(String runId) {
+        return runId != null && runId.matches("[A-Za-z0-9._-]+");
+    }
+
+    /**
+     * @return the identifier of the sharded run given by {@link IntegrityCheckOptions#SHARD_RUN_ID}, shared by
+     * the shards and the merge
+     * @throws TcInconclusive if it is not set or cannot be part of a file name
+     */
+    public static String requireRunId() throws TcInconclusive {
+        String runId = IntegrityCheckOptions.getShardRunId();
+        if (!isValidRunId(runId)) {
+            throw new TcInconclusive("A sharded run needs " + IntegrityCheckOptions.SHARD_RUN_ID
+                    + " made of letters, digits, '.', '_' or '-', the same for every shard and the merge, found "
+                    + runId);
+        }
+        return runId;
+    }
+
+    /**
+     * Add the counts of a verifier, after its judgment.
+     *
+     * @param verifier the verifier
+     */
+    public void add(FadVerifier verifier) {
+        judged += verifier.getJudgedCount();
+        failed += verifier.getFailedCount();
+        notReceived += verifier.getNotReceivedCount();
+        notInFad += verifier.getUnknownCount();
+        warnings += verifier.getWarningCount();
+        receivedPdus += verifier.getReceivedCount();
+    }
+
+    /**
+     * @param report a verdict report of the shard, concatenated to the combined report by the merge
+     */
+    public void addReport(File report) {
+        reports.add(report.getAbsolutePath());
+    }
+
+    /**
+     * Write the partial verdict in the shard directory, replacing the one of a previous run with the same
+     * identifier. The file is written under a temporary name first so that the merge never reads a partial file.
+     *
+     * @param shardDir the shard directory
+     * @return the partial verdict file
+     * @throws IOException if the file cannot be written
+     */
+    public File write(File shardDir) throws IOException {
+        File file = new File(shardDir, fileName(runId, shardIndex, shardCount));
+        File temporary = new File(shardDir, file.getName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary.toPath(), StandardCharsets.UTF_8)) {
+            toJson().writeJSONString(writer);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    /**
+     * @param file a partial verdict file
+     * @return the partial verdict
+     * @throws IOException if the file cannot be read or is not a partial verdict
+     */
+    public static ShardVerdict read(File file) throws IOException {
+        Object root;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            root = new JSONParser().parse(reader);
+        } catch (ParseException e) {
+            throw new IOException("Invalid JSON in " + file + ": " + e, e);
+        }
+        if (!(root instanceof JSONObject) || !(((JSONObject) root).get("verdict") instanceof String)) {
+            throw new IOException(file + " is not a shard verdict");
+        }
+        JSONObject json = (JSONObject) root;
+        ShardVerdict shard = new ShardVerdict(String.valueOf(json.get("runId")), (int) longValue(json, "shardIndex"),
+                (int) longValue(json, "shardCount"), (String) json.get("verdict"));
+        shard.judged = longValue(json, "judged");
+        shard.failed = longValue(json, "failed");
+        shard.notReceived = longValue(json, "notReceived");
+        shard.notInFad = longValue(json, "notInFad");
+        shard.warnings = longValue(json, "warnings");
+        shard.receivedPdus = longValue(json, "receivedPdus");
+        Object reportArray = json.get("reports");
+        if (reportArray instanceof JSONArray) {
+            for (Object report : (JSONArray) reportArray) {
+                shard.reports.add(String.valueOf(report));
+            }
+        }
+        return shard;
+    }
+
+    private static long longValue(JSONObject json, String key) {
+        Object value = json.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * @return the partial verdict as written in its file
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("runId", runId);
+        json.put("shardIndex", shardIndex);
+        json.put("shardCount", shardCount);
+        json.put("verdict", verdict);
+        json.put("judged", judged);
+        json.put("failed", failed);
+        json.put("notReceived", notReceived);
+        json.put("notInFad", notInFad);
+        json.put("warnings", warnings);
+        json.put("receivedPdus", receivedPdus);
+        JSONArray reportArray = new JSONArray();
+        reportArray.addAll(reports);
+        json.put("reports", reportArray);
+        return json;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public String getVerdict() {
+        return verdict;
+    }
+
+    public long getJudged() {
+        return judged;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getNotReceived() {
+        return notReceived;
+    }
+
+    public long getNotInFad() {
+        return notInFad;
+    }
+
+    public long getWarnings() {
+        return warnings;
+    }
+
+    public long getReceivedPdus() {
+        return receivedPdus;
+    }
+
+    /**
+     * @return absolute paths of the verdict reports of the shard
+     */
+    public List<String> getReports() {
+        return reports;
+    }
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static ca.drdc.ivct.tc_lib_integritycheck_dis.FadVerifier.LINE_SEPARATOR;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+
+import de.fraunhofer.iosb.tc_lib.TcFailed;
+import de.fraunhofer.iosb.tc_lib.TcInconclusive;
+
+/**
+ * Combines the {@link ShardVerdict}s of the checker processes of a sharded run
+ * into one verdict and one verdict report.
+ *
+ * The run passes when every shard passed, fails when a shard failed, and is
+ * inconclusive otherwise, including when a shard wrote no partial verdict or
+ * when no FAD entity was judged.
+ * Since each entity belongs to exactly one shard, the counts of the shards add
+ * up to those of an unsharded run. Only the partial verdicts of the run
+ * identifier given to the merge are combined, those of other runs are ignored.
+ */
+public class ShardVerdictMerge {
+
+    private final File shardDir;
+    private final String runId;
+    private final int shardCount;
+    private final Logger logger;
+    private final List<Integer> missing = new ArrayList<>();
+    private final List<Integer> failed = new ArrayList<>();
+    private final List<Integer> inconclusive = new ArrayList<>();
+    private long judged;
+
+    /**
+     * @param shardDir directory of the partial verdict files
+     * @param runId identifier of the sharded run, given to every shard
+     * @param shardCount number of shards of the run
+     * @param logger the logger
+     */
+    public ShardVerdictMerge(File shardDir, String runId, int shardCount, Logger logger) {
+        this.shardDir = shardDir;
+        this.runId = runId;
+        this.shardCount = shardCount;
+        this.logger = logger;
+    }
+
+    /**
+     * @param logger the logger
+     * @return the merge of the run given by {@link IntegrityCheckOptions#SHARD_RUN_ID},
+     * {@link IntegrityCheckOptions#SHARD_COUNT} and {@link IntegrityCheckOptions#SHARD_DIR}
+     * @throws TcInconclusive if there are fewer than 2 shards or the run identifier is invalid
+     */
+    public static ShardVerdictMerge fromOptions(Logger logger) throws TcInconclusive {
+        int shardCount = IntegrityCheckOptions.getShardCount();
+        if (shardCount < 2) {
+            throw new TcInconclusive("Merging the partial verdicts requires an integritycheck.shardCount of 2 "
+                    + "or more, not " + shardCount);
+        }
+        return new ShardVerdictMerge(IntegrityCheckOptions.getShardDir(), ShardVerdict.requireRunId(), shardCount,
+                logger);
+    }
+
+    /**
+     * Wait until every shard wrote its partial verdict, or the timeout expires.
+     *
+     * @param timeoutSeconds maximum wait in seconds
+     */
+    public void await(int timeoutSeconds) {
+        logger.info("Waiting up to {} seconds for the partial verdicts of the run {} of {} shards in {}",
+                timeoutSeconds, runId, shardCount, shardDir);
+        new CountdownTimer(timeoutSeconds, logger, this::isComplete).run();
+    }
+
+    /**
+     * @return true when every shard wrote its partial verdict
+     */
+    public boolean isComplete() {
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (!new File(shardDir, ShardVerdict.fileName(runId, shard, shardCount)).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the partial verdicts, log the combined counts and concatenate the
+     * reports of the shards. The partial verdict files are deleted once merged
+     * into a passed or failed verdict, and kept otherwise so that the merge can
+     * be run again when the missing shards are done.
+     *
+     * @param combinedReport the combined verdict report, replaced if it exists
+     * @return {@link CheckingPipeline#PASSED}, {@link CheckingPipeline#FAILED} or
+     * {@link CheckingPipeline#INCONCLUSIVE}
+     * @throws IOException if the combined report cannot be written
+     */
+    public String merge(File combinedReport) throws IOException {
+        judged = 0;
+        long failedEntities = 0;
+        long notReceived = 0;
+        long notInFad = 0;
+        long warnings = 0;
+        long receivedPdus = 0;
+        List<File> merged = new ArrayList<>();
+        try (OutputStream out = Files.newOutputStream(combinedReport.toPath())) {
+            for (int shard = 0; shard < shardCount; shard++) {
+                File file = new File(shardDir, ShardVerdict.fileName(runId, shard, shardCount));
+                ShardVerdict verdict;
+                try {
+                    verdict = ShardVerdict.read(file);
+                } catch (IOException e) {
+                    logger.warn("No partial verdict for the shard {}: {}", shard, e.getMessage());
+                    missing.add(shard);
+                    continue;
+                }
+                if (verdict.getShardCount() != shardCount || !runId.equals(verdict.getRunId())) {
+                    logger.warn("The partial verdict {} is of the run {} of {} shards", file, verdict.getRunId(),
+                            verdict.getShardCount());
+                    missing.add(shard);
+                    continue;
+                }
+                merged.add(file);
+                logger.info("Shard {} of {}: {}; FAD entities [{}]; failed [{}]; not received [{}]; not in FAD [{}]",
+                        shard, shardCount, verdict.getVerdict(), verdict.getJudged(), verdict.getFailed(),
+                        verdict.getNotReceived(), verdict.getNotInFad());
+                if (CheckingPipeline.FAILED.equals(verdict.getVerdict())) {
+                    failed.add(shard);
+                } else if (!CheckingPipeline.PASSED.equals(verdict.getVerdict())) {
+                    inconclusive.add(shard);
+                }
+                judged += verdict.getJudged();
+                failedEntities += verdict.getFailed();
+                notReceived += verdict.getNotReceived();
+                notInFad += verdict.getNotInFad();
+                warnings += verdict.getWarnings();
+                receivedPdus += verdict.getReceivedPdus();
+                for (String report : verdict.getReports()) {
+                    File reportFile = new File(report);
+                    if (!reportFile.isFile()) {
+                        // shards of other hosts: their reports are expected next to the partial verdicts
+                        reportFile = new File(shardDir, reportFile.getName());
+                    }
+                    if (reportFile.isFile()) {
+                        Files.copy(reportFile.toPath(), out);
+                    } else {
+                        logger.warn("The verdict report {} of the shard {} is not found", report, shard);
+                    }
+                }
+            }
+        }
+        logger.info("\n"+LINE_SEPARATOR+"\nSUMMARY OF {} SHARDS: FAD entities [{}]; received PDUs [{}]\n"
+                + "passed [{}]; failed [{}] of which not received [{}]; not in FAD [{}]; with warnings [{}]\n"+LINE_SEPARATOR,
+                shardCount, judged, receivedPdus, judged - failedEntities, failedEntities, notReceived, notInFad,
+                warnings);
+        logger.info("Combined verdict report written to {}", combinedReport);
+
+        String verdict;
+        if (judged == 0) {
+            verdict = CheckingPipeline.INCONCLUSIVE;
+        } else if (!failed.isEmpty()) {
+            verdict = CheckingPipeline.FAILED;
+        } else if (missing.isEmpty() && inconclusive.isEmpty()) {
+            verdict = CheckingPipeline.PASSED;
+        } else {
+            verdict = CheckingPipeline.INCONCLUSIVE;
+        }
+        if (!CheckingPipeline.INCONCLUSIVE.equals(verdict)) {
+            for (File file : merged) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        return verdict;
+    }
+
+    /**
+     * {@link #merge(File)} the partial verdicts into the verdict of the test.
+     *
+     * @param combinedReport the combined verdict report, replaced if it exists
+     * @throws TcInconclusive if a shard is missing or inconclusive, no FAD entity was judged or the
+     * combined report cannot be written
+     * @throws TcFailed if a shard failed
+     */
+    public void judge(File combinedReport) throws TcInconclusive, TcFailed {
+        String verdict;
+        try {
+            verdict = merge(combinedReport);
+        } catch (IOException e) {
+            throw new TcInconclusive("Could not write the combined verdict report", e);
+        }
+        if (CheckingPipeline.FAILED.equals(verdict)) {
+            throw new TcFailed("Test failed due to errors in entity(ies) or absent/unrecognized entity(ies) "
+                    + "of the shard(s) " + failed);
+        }
+        if (CheckingPipeline.INCONCLUSIVE.equals(verdict) && judged == 0 && getInconclusive().isEmpty()) {
+            throw new TcInconclusive("No FAD entity was judged by the shards");
+        }
+        if (CheckingPipeline.INCONCLUSIVE.equals(verdict)) {
+            throw new TcInconclusive("No verdict or an inconclusive verdict from the shard(s) " + getInconclusive());
+        }
+    }
+
+    /**
+     * @return number of FAD entities judged by the shards merged, after {@link #merge(File)}
+     */
+    public long getJudged() {
+        return judged;
+    }
+
+    /**
+     * @return the shards that failed, after {@link #merge(File)}
+     */
+    public List<Integer> getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the shards without partial verdict or with an inconclusive one, after {@link #merge(File)}
+     */
+    public List<Integer> getInconclusive() {
+        List<Integer> shards = new ArrayList<>(missing);
+        shards.addAll(inconclusive);
+        return shards;
+    }
+}
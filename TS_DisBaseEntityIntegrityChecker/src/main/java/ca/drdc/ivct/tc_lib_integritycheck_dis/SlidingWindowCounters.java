@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Event counters aggregated in consecutive time windows, of which only the
+ * last ones are kept, so the memory does not grow with the duration of a run.
+ *
+ * Events are counted in the current window, which only moves on in
+ * {@link #advance(long, ObjLongConsumer)}; the caller advances to the time of
+ * an event before counting it.
+ */
+public class SlidingWindowCounters {
+
+    private final long windowNanos;
+    private final long[][] windows;
+    private final long[] totals;
+    private long currentStart;
+    private int current;
+    private long closedCount;
+
+    /**
+     * @param counters number of counters
+     * @param windowCount number of windows kept, the current one included
+     * @param windowNanos duration of a window
+     * @param startNanos System.nanoTime() of the start of the first window
+     */
+    public SlidingWindowCounters(int counters, int windowCount, long windowNanos, long startNanos) {
+        this.windowNanos = windowNanos;
+        this.windows = new long[windowCount][counters];
+        this.totals = new long[counters];
+        this.currentStart = startNanos;
+    }
+
+    /**
+     * Count an event in the current window.
+     *
+     * @param counter the counter
+     */
+    public void increment(int counter) {
+        windows[current][counter]++;
+        totals[counter]++;
+    }
+
+    /**
+     * Close the windows that ended before now, each one is handed to the
+     * listener in order, the empty ones included.
+     *
+     * @param nowNanos System.nanoTime(), must not precede the previous calls
+     * @param closedWindow receives a copy of the counters of each closed window and its number, from 1
+     * @return number of windows closed
+     */
+    public int advance(long nowNanos, ObjLongConsumer<long[]> closedWindow) {
+        int closed = 0;
+        while (nowNanos - currentStart >= windowNanos) {
+            closedCount++;
+            closed++;
+            closedWindow.accept(windows[current].clone(), closedCount);
+            current = (current + 1) % windows.length;
+            Arrays.fill(windows[current], 0);
+            currentStart += windowNanos;
+        }
+        return closed;
+    }
+
+    /**
+     * @return the counters of the last closed window, zeros before the first window closed
+     */
+    public long[] getLastClosed() {
+        return closedCount == 0 ? new long[totals.length]
+                : windows[(current + windows.length - 1) % windows.length].clone();
+    }
+
+    /**
+     * @param counter the counter
+     * @return sum of the counter over the windows kept, the current one included
+     */
+    public long getRecent(int counter) {
+        long sum = 0;
+        for (long[] window : windows) {
+            sum += window[counter];
+        }
+        return sum;
+    }
+
+    /**
+     * @param counter the counter
+     * @return the counter since the start
+     */
+    public long getTotal(int counter) {
+        return totals[counter];
+    }
+
+    /**
+     * @return number of windows closed since the start
+     */
+    public long getClosedCount() {
+        return closedCount;
+    }
+
+    public long getWindowNanos() {
+        return windowNanos;
+    }
+}
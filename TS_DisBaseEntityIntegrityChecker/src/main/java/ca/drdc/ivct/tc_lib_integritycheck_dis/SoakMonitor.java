@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+import org.slf4j.Logger;
+
+import ca.drdc.ivct.scenario.EntityKey;
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * Verifies every update received during a long run against the FAD, after the
+ * snapshot judgment of {@link FadVerifier}.
+ *
+ * The monitor reports:
+ * <ul>
+ * <li>entities whose updates stop for longer than the heartbeat timeout, and
+ * when they resume. FAD entities never updated during the run time out as well,</li>
+ * <li>FAD entities whose state drifts out of the thresholds, and when they recover,</li>
+ * <li>entities not in the FAD that appear.</li>
+ * </ul>
+ * Heartbeat deadlines are kept in a {@link HashedTimingWheel}, so an update is
+ * constant time and entities are never scanned. Event counts are aggregated in
+ * {@link SlidingWindowCounters}, a summary is logged when each window closes.
+ */
+public class SoakMonitor {
+
+    /**
+     * counters of the windows
+     */
+    public static final int UPDATES = 0;
+    public static final int NEW_ENTITY = 1;
+    public static final int DRIFT = 2;
+    public static final int RECOVERED = 3;
+    public static final int TIMEOUT = 4;
+    public static final int RESUMED = 5;
+
+    private static final String[] COUNTER_NAMES = {"updates", "newEntities", "drifts", "recoveries", "timeouts",
+            "resumes"};
+
+    private static final int WINDOWS_KEPT = 60;
+    private static final int WHEEL_SIZE = 512;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int fadSize;
+    private final LongIntHashMap fadOrdinals;
+
+    /**
+     * true for the entity keys of the shard of the verifier, the others are not monitored
+     */
+    private final LongPredicate shard;
+    private final SpatialColumns fadColumns;
+    private final SpatialColumns receivedColumns;
+    private final SpatialComparisonEngine comparisonEngine;
+    private final long heartbeatTimeoutNanos;
+    private final int maxUnknownEntities;
+    private final int consoleEventLimit;
+    private final Logger logger;
+
+    /**
+     * identifiers of the monitored entities: the FAD ordinal for FAD entities,
+     * the FAD size plus the order of appearance for the others
+     */
+    private final LongIntHashMap unknownIds;
+    private final long[] keys;
+    private final boolean[] timedOut;
+    private final byte[] lastMismatches;
+    private final HashedTimingWheel heartbeats;
+    private final SlidingWindowCounters windows;
+    private int unknownCount;
+    private long overflow;
+    private int eventsLogged;
+
+    /**
+     * Start monitoring, every FAD entity is expected to be updated within the heartbeat timeout.
+     *
+     * @param verifier verifier of the snapshot judgment, provides the FAD
+     * @param thresholds spatial thresholds of the test case
+     * @param heartbeatTimeoutNanos maximum time between two updates of an entity
+     * @param windowNanos duration of an aggregation window
+     * @param maxUnknownEntities maximum number of entities not in the FAD monitored
+     * @param consoleEventLimit maximum number of entity events logged, the windows count all of them
+     * @param logger the logger
+     */
+    public SoakMonitor(FadVerifier verifier, SpatialThresholds thresholds, long heartbeatTimeoutNanos,
+            long windowNanos, int maxUnknownEntities, int consoleEventLimit, Logger logger) {
+        long startNanos = System.nanoTime();
+        this.fadColumns = verifier.getFadColumns();
+        this.fadOrdinals = verifier.getFadOrdinals();
+        this.fadSize = fadColumns.size();
+        this.receivedColumns = new SpatialColumns(fadSize);
+        this.comparisonEngine = new SpatialComparisonEngine(fadColumns, receivedColumns, thresholds);
+        this.heartbeatTimeoutNanos = heartbeatTimeoutNanos;
+        this.maxUnknownEntities = maxUnknownEntities;
+        this.consoleEventLimit = consoleEventLimit;
+        this.logger = logger;
+        int capacity = fadSize + maxUnknownEntities;
+        this.unknownIds = new LongIntHashMap();
+        this.keys = new long[capacity];
+        System.arraycopy(verifier.getFadKeys(), 0, keys, 0, fadSize);
+        this.timedOut = new boolean[capacity];
+        this.lastMismatches = new byte[fadSize];
+        this.heartbeats = new HashedTimingWheel(WHEEL_SIZE, TICK_NANOS, capacity, startNanos);
+        this.windows = new SlidingWindowCounters(COUNTER_NAMES.length, WINDOWS_KEPT, windowNanos, startNanos);
+        this.shard = verifier::owns;
+        for (int ordinal = 0; ordinal < fadSize; ordinal++) {
+            if (shard.test(keys[ordinal])) {
+                heartbeats.schedule(ordinal, startNanos + heartbeatTimeoutNanos);
+            }
+        }
+    }
+
+    /**
+     * @param pdu entity state received
+     * @param receiveNanos System.nanoTime() when it was received
+     */
+    public void update(EntityStatePdu pdu, long receiveNanos) {
+        long key = EntityKey.of(pdu.getEntityID());
+        if (!shard.test(key)) {
+            return;
+        }
+        advance(receiveNanos);
+        int id = fadOrdinals.get(key);
+        if (id == LongIntHashMap.NO_VALUE) {
+            id = unknownIds.get(key);
+            if (id == LongIntHashMap.NO_VALUE) {
+                if (unknownCount == maxUnknownEntities) {
+                    overflow++;
+                    return;
+                }
+                id = fadSize + unknownCount++;
+                unknownIds.put(key, id);
+                keys[id] = key;
+                event(NEW_ENTITY, id, "appeared and is not in the FAD");
+            }
+        }
+        windows.increment(UPDATES);
+        if (timedOut[id]) {
+            timedOut[id] = false;
+            event(RESUMED, id, "resumed its updates");
+        }
+        heartbeats.schedule(id, receiveNanos + heartbeatTimeoutNanos);
+
+        if (id < fadSize) {
+            receivedColumns.set(id, pdu);
+            int mask = comparisonEngine.compare(id);
+            if (receivedColumns.getEntityType()[id] != fadColumns.getEntityType()[id]) {
+                mask |= MismatchFlags.ENTITY_TYPE;
+            }
+            boolean failure = MismatchFlags.isFailure(mask);
+            boolean wasFailure = MismatchFlags.isFailure(lastMismatches[id]);
+            if (failure && !wasFailure) {
+                event(DRIFT, id, "drifted from the FAD on "
+                        + MismatchFlags.toString(mask & MismatchFlags.FAILURES));
+            } else if (!failure && wasFailure) {
+                event(RECOVERED, id, "matches the FAD again");
+            }
+            lastMismatches[id] = (byte) mask;
+        }
+    }
+
+    /**
+     * Close the windows up to now, logging the summary of each one, then
+     * expire the heartbeats, called periodically and before each update.
+     *
+     * @param nowNanos System.nanoTime()
+     */
+    public void advance(long nowNanos) {
+        windows.advance(nowNanos, (counters, window) -> logger.info("SOAK WINDOW {}: {}", window, format(counters)));
+        heartbeats.advance(nowNanos, id -> {
+            timedOut[id] = true;
+            event(TIMEOUT, id, "sent no update for "
+                    + TimeUnit.NANOSECONDS.toSeconds(heartbeatTimeoutNanos) + " seconds");
+        });
+    }
+
+    /**
+     * @return true if an entity timed out, drifted or appeared during the run
+     */
+    public boolean isDegraded() {
+        return overflow > 0 || windows.getTotal(NEW_ENTITY) > 0 || windows.getTotal(DRIFT) > 0
+                || windows.getTotal(TIMEOUT) > 0;
+    }
+
+    /**
+     * @param counter one of the counters
+     * @return the counter since the start of the run
+     */
+    public long getTotal(int counter) {
+        return windows.getTotal(counter);
+    }
+
+    /**
+     * log the totals of the run and the entities still timed out or drifted
+     */
+    public void logSummary() {
+        long[] totals = new long[COUNTER_NAMES.length];
+        for (int counter = 0; counter < totals.length; counter++) {
+            totals[counter] = windows.getTotal(counter);
+        }
+        int stillTimedOut = 0;
+        for (boolean entityTimedOut : timedOut) {
+            if (entityTimedOut) {
+                stillTimedOut++;
+            }
+        }
+        int stillDrifted = 0;
+        for (byte mask : lastMismatches) {
+            if (MismatchFlags.isFailure(mask)) {
+                stillDrifted++;
+            }
+        }
+        logger.info("SOAK SUMMARY: {}; entities timed out at the end [{}]; drifted at the end [{}]; "
+                + "updates of unmonitored entities not in the FAD [{}]", format(totals), stillTimedOut, stillDrifted,
+                overflow);
+    }
+
+    private void event(int counter, int id, String description) {
+        windows.increment(counter);
+        if (counter != RECOVERED && counter != RESUMED && eventsLogged++ < consoleEventLimit) {
+            logger.warn("SOAK: Entity {} {}", EntityKey.toString(keys[id]), description);
+        }
+    }
+
+    private static String format(long[] counters) {
+        StringBuilder line = new StringBuilder();
+        for (int counter = 0; counter < counters.length; counter++) {
+            if (counter > 0) {
+                line.append("; ");
+            }
+            line.append(COUNTER_NAMES[counter]).append(" [").append(counters[counter]).append(']');
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import ca.drdc.ivct.scenario.EntityAppearance;
+import ca.drdc.ivct.scenario.EntityKey;
+import edu.nps.moves.dis.DeadReckoningParameter;
+import edu.nps.moves.dis.EntityStatePdu;
+import edu.nps.moves.dis.Orientation;
+import edu.nps.moves.dis.Vector3Double;
+import edu.nps.moves.dis.Vector3Float;
+
+/**
+ * Entity type and spatial fields of a set of entities, stored as one primitive
+ * array per field (struct of arrays) in the DIS coordinate frame.
+ *
+ * Comparing a field over many entities then walks contiguous arrays instead of
+ * an object graph per entity.
+ */
+public class SpatialColumns {
+
+    private final long[] entityType;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final float[] psi;
+    private final float[] theta;
+    private final float[] phi;
+    private final float[] velocityX;
+    private final float[] velocityY;
+    private final float[] velocityZ;
+    private final boolean[] frozen;
+    private final byte[] deadReckoningAlgorithm;
+    private final float[] accelerationX;
+    private final float[] accelerationY;
+    private final float[] accelerationZ;
+    private final float[] angularVelocityX;
+    private final float[] angularVelocityY;
+    private final float[] angularVelocityZ;
+
+    /**
+     * @param size number of entities
+     */
+    public SpatialColumns(int size) {
+        entityType = new long[size];
+        x = new double[size];
+        y = new double[size];
+        z = new double[size];
+        psi = new float[size];
+        theta = new float[size];
+        phi = new float[size];
+        velocityX = new float[size];
+        velocityY = new float[size];
+        velocityZ = new float[size];
+        frozen = new boolean[size];
+        deadReckoningAlgorithm = new byte[size];
+        accelerationX = new float[size];
+        accelerationY = new float[size];
+        accelerationZ = new float[size];
+        angularVelocityX = new float[size];
+        angularVelocityY = new float[size];
+        angularVelocityZ = new float[size];
+    }
+
+    /**
+     * Copy the fields of an entity state PDU at an index.
+     *
+     * @param index index of the entity
+     * @param pdu the entity state
+     */
+    public void set(int index, EntityStatePdu pdu) {
+        entityType[index] = EntityKey.typeOf(pdu.getEntityType());
+
+        Vector3Double location = pdu.getEntityLocation();
+        x[index] = location.getX();
+        y[index] = location.getY();
+        z[index] = location.getZ();
+
+        Orientation orientation = pdu.getEntityOrientation();
+        psi[index] = orientation.getPsi();
+        theta[index] = orientation.getTheta();
+        phi[index] = orientation.getPhi();
+
+        Vector3Float velocity = pdu.getEntityLinearVelocity();
+        velocityX[index] = velocity.getX();
+        velocityY[index] = velocity.getY();
+        velocityZ[index] = velocity.getZ();
+
+        frozen[index] = (pdu.getEntityAppearance() & EntityAppearance.FROZEN_BIT) != 0;
+
+        DeadReckoningParameter deadReckoning = pdu.getDeadReckoningParameters();
+        deadReckoningAlgorithm[index] = (byte) deadReckoning.getDeadReckoningAlgorithm();
+        Vector3Float acceleration = deadReckoning.getEntityLinearAcceleration();
+        accelerationX[index] = acceleration.getX();
+        accelerationY[index] = acceleration.getY();
+        accelerationZ[index] = acceleration.getZ();
+        Vector3Float angularVelocity = deadReckoning.getEntityAngularVelocity();
+        angularVelocityX[index] = angularVelocity.getX();
+        angularVelocityY[index] = angularVelocity.getY();
+        angularVelocityZ[index] = angularVelocity.getZ();
+    }
+
+    public int size() {
+        return x.length;
+    }
+
+    public long[] getEntityType() {
+        return entityType;
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    public double[] getZ() {
+        return z;
+    }
+
+    public float[] getPsi() {
+        return psi;
+    }
+
+    public float[] getTheta() {
+        return theta;
+    }
+
+    public float[] getPhi() {
+        return phi;
+    }
+
+    public float[] getVelocityX() {
+        return velocityX;
+    }
+
+    public float[] getVelocityY() {
+        return velocityY;
+    }
+
+    public float[] getVelocityZ() {
+        return velocityZ;
+    }
+
+    public boolean[] getFrozen() {
+        return frozen;
+    }
+
+    public byte[] getDeadReckoningAlgorithm() {
+        return deadReckoningAlgorithm;
+    }
+
+    public float[] getAccelerationX() {
+        return accelerationX;
+    }
+
+    public float[] getAccelerationY() {
+        return accelerationY;
+    }
+
+    public float[] getAccelerationZ() {
+        return accelerationZ;
+    }
+
+    public float[] getAngularVelocityX() {
+        return angularVelocityX;
+    }
+
+    public float[] getAngularVelocityY() {
+        return angularVelocityY;
+    }
+
+    public float[] getAngularVelocityZ() {
+        return angularVelocityZ;
+    }
+}
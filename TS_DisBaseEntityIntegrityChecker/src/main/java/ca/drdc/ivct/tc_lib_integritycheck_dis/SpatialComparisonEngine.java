@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compares the spatial fields of received entities with the FAD, both stored as
+ * {@link SpatialColumns} indexed by FAD ordinal.
+ *
+ * The result of each entity is a {@link MismatchFlags} bitmask. Comparing the
+ * whole FAD splits the ordinals in batches handled by the common fork-join pool.
+ */
+public class SpatialComparisonEngine {
+
+    /**
+     * number of entities compared by one fork-join task
+     */
+    private static final int BATCH_SIZE = 4096;
+
+    private final SpatialColumns fad;
+    private final SpatialColumns received;
+    private final double worldLocationThreshold;
+    private final double orientationThreshold;
+    private final double velocityThreshold;
+    private final double accelerationThreshold;
+    private final double angularVelocityThreshold;
+
+    /**
+     * @param fad spatial fields of the FAD entities
+     * @param received spatial fields of the received entities, at the ordinal of the matching FAD entity
+     * @param thresholds maximum difference on each axis for a field to be equal
+     */
+    public SpatialComparisonEngine(SpatialColumns fad, SpatialColumns received, SpatialThresholds thresholds) {
+        this.fad = fad;
+        this.received = received;
+        this.worldLocationThreshold = thresholds.getWorldLocation();
+        this.orientationThreshold = thresholds.getOrientation();
+        this.velocityThreshold = thresholds.getVelocity();
+        this.accelerationThreshold = thresholds.getAcceleration();
+        this.angularVelocityThreshold = thresholds.getAngularVelocity();
+    }
+
+    /**
+     * Compare the entities of every ordinal flagged as present, in parallel.
+     *
+     * @param present per FAD ordinal, true when a received entity is stored at that ordinal
+     * @param results per FAD ordinal, receives the comparison bitmask of the present entities
+     */
+    public void compareAll(boolean[] present, byte[] results) {
+        ForkJoinPool.commonPool().invoke(new CompareTask(present, results, 0, present.length));
+    }
+
+    /**
+     * @param ordinal FAD ordinal of the entity
+     * @return the {@link MismatchFlags} of the spatial fields
+     */
+    public int compare(int ordinal) {
+        int mask = 0;
+        if (!(equal(fad.getX(), received.getX(), ordinal, worldLocationThreshold)
+                && equal(fad.getY(), received.getY(), ordinal, worldLocationThreshold)
+                && equal(fad.getZ(), received.getZ(), ordinal, worldLocationThreshold))) {
+            mask |= MismatchFlags.WORLD_LOCATION;
+        }
+        if (fad.getFrozen()[ordinal] != received.getFrozen()[ordinal]) {
+            mask |= MismatchFlags.FROZEN;
+        }
+        if (!(equal(fad.getPsi(), received.getPsi(), ordinal, orientationThreshold)
+                && equal(fad.getTheta(), received.getTheta(), ordinal, orientationThreshold)
+                && equal(fad.getPhi(), received.getPhi(), ordinal, orientationThreshold))) {
+            mask |= MismatchFlags.ORIENTATION;
+        }
+        if (!(equal(fad.getVelocityX(), received.getVelocityX(), ordinal, velocityThreshold)
+                && equal(fad.getVelocityY(), received.getVelocityY(), ordinal, velocityThreshold)
+                && equal(fad.getVelocityZ(), received.getVelocityZ(), ordinal, velocityThreshold))) {
+            mask |= MismatchFlags.VELOCITY;
+        }
+        if (fad.getDeadReckoningAlgorithm()[ordinal] != received.getDeadReckoningAlgorithm()[ordinal]
+                || !(equal(fad.getAccelerationX(), received.getAccelerationX(), ordinal, accelerationThreshold)
+                && equal(fad.getAccelerationY(), received.getAccelerationY(), ordinal, accelerationThreshold)
+                && equal(fad.getAccelerationZ(), received.getAccelerationZ(), ordinal, accelerationThreshold)
+                && equal(fad.getAngularVelocityX(), received.getAngularVelocityX(), ordinal, angularVelocityThreshold)
+                && equal(fad.getAngularVelocityY(), received.getAngularVelocityY(), ordinal, angularVelocityThreshold)
+                && equal(fad.getAngularVelocityZ(), received.getAngularVelocityZ(), ordinal, angularVelocityThreshold))) {
+            mask |= MismatchFlags.DEAD_RECKONING;
+        }
+        return mask;
+    }
+
+    private static boolean equal(double[] expected, double[] actual, int index, double threshold) {
+        return Math.abs(expected[index] - actual[index]) <= threshold;
+    }
+
+    private static boolean equal(float[] expected, float[] actual, int index, double threshold) {
+        return Math.abs(expected[index] - actual[index]) <= threshold;
+    }
+
+    private final class CompareTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean[] present;
+        private final byte[] results;
+        private final int from;
+        private final int to;
+
+        private CompareTask(boolean[] present, byte[] results, int from, int to) {
+            this.present = present;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                for (int ordinal = from; ordinal < to; ordinal++) {
+                    if (present[ordinal]) {
+                        results[ordinal] |= (byte) compare(ordinal);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CompareTask(present, results, from, mid), new CompareTask(present, results, mid, to));
+        }
+    }
+}
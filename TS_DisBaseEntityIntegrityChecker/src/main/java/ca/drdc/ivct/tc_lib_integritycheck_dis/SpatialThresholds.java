@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Numeric view of the "thresholds" of TcParam.json, for the checks that do not
+ * go through BaseEntityEqualUtils.
+ */
+public class SpatialThresholds {
+
+    public static final String WORLD_LOCATION = "worldLocation";
+    public static final String ORIENTATION = "orientation";
+    public static final String VELOCITY = "velocity";
+    public static final String ACCELERATION = "acceleration";
+    public static final String ANGULAR_VELOCITY = "angularVelocity";
+
+    private final double worldLocation;
+    private final double orientation;
+    private final double velocity;
+    private final double acceleration;
+    private final double angularVelocity;
+
+    public SpatialThresholds(double worldLocation, double orientation, double velocity, double acceleration,
+            double angularVelocity) {
+        this.worldLocation = worldLocation;
+        this.orientation = orientation;
+        this.velocity = velocity;
+        this.acceleration = acceleration;
+        this.angularVelocity = angularVelocity;
+    }
+
+    /**
+     * @param thresholds the thresholds by name, as given in TcParam.json
+     * @return the thresholds
+     * @throws IllegalArgumentException if a threshold is missing, since 0 would require exact equality
+     */
+    public static SpatialThresholds from(Map<String, ? extends Number> thresholds) {
+        return from(thresholds, Collections.<String, Number>emptyMap());
+    }
+
+    /**
+     * @param thresholds the thresholds by name, as given in a pipeline
+     * @param defaults the thresholds used for the ones missing, as given in TcParam.json
+     * @return the thresholds
+     * @throws IllegalArgumentException if a threshold is in neither map
+     */
+    public static SpatialThresholds from(Map<String, ? extends Number> thresholds,
+            Map<String, ? extends Number> defaults) {
+        return new SpatialThresholds(
+                valueOf(thresholds, defaults, WORLD_LOCATION),
+                valueOf(thresholds, defaults, ORIENTATION),
+                valueOf(thresholds, defaults, VELOCITY),
+                valueOf(thresholds, defaults, ACCELERATION),
+                valueOf(thresholds, defaults, ANGULAR_VELOCITY));
+    }
+
+    private static double valueOf(Map<String, ? extends Number> thresholds, Map<String, ? extends Number> defaults,
+            String name) {
+        Number value = thresholds != null ? thresholds.get(name) : null;
+        if (value == null && defaults != null) {
+            value = defaults.get(name);
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("The threshold \"" + name + "\" is missing");
+        }
+        if (!(value.doubleValue() >= 0)) {
+            throw new IllegalArgumentException("The threshold \"" + name + "\" is not a positive number: " + value);
+        }
+        return value.doubleValue();
+    }
+
+    public double getWorldLocation() {
+        return worldLocation;
+    }
+
+    public double getOrientation() {
+        return orientation;
+    }
+
+    public double getVelocity() {
+        return velocity;
+    }
+
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    public double getAngularVelocity() {
+        return angularVelocity;
+    }
+}
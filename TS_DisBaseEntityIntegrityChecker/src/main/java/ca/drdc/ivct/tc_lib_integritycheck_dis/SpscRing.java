@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded ring buffer for exactly one producer thread and one consumer thread.
+ *
+ * Each side owns its index and only reads the other one, publishing with an
+ * ordered store, so neither side takes a lock nor a compare and swap.
+ *
+ * @param <E> type of the elements
+ */
+public class SpscRing<E> {
+
+    private final Object[] elements;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity maximum number of elements, rounded up to a power of two
+     */
+    public SpscRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.elements = new Object[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Producer side.
+     *
+     * @param element the element, not null
+     * @return false if the ring is full
+     */
+    public boolean offer(E element) {
+        long currentTail = tail.get();
+        if (currentTail - head.get() == elements.length) {
+            return false;
+        }
+        elements[(int) currentTail & mask] = element;
+        tail.lazySet(currentTail + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side.
+     *
+     * @return the oldest element, null if the ring is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long currentHead = head.get();
+        if (currentHead == tail.get()) {
+            return null;
+        }
+        int index = (int) currentHead & mask;
+        E element = (E) elements[index];
+        elements[index] = null;
+        head.lazySet(currentHead + 1);
+        return element;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the per entity outcomes of a run as NDJSON, one JSON object per line,
+ * on a background thread.
+ *
+ * The test thread only queues the outcomes; it waits when the queue is full,
+ * so that the memory stays bounded when the disk is slower than the compare.
+ */
+public class VerdictReportWriter implements Closeable {
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final EntityOutcome END = new EntityOutcome(0, 0, 0, null, null, 0);
+
+    private final File file;
+    private final BufferedWriter writer;
+    private final BlockingQueue<EntityOutcome> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile IOException failure;
+    private long written;
+
+    /**
+     * @param file the report file, replaced if it exists
+     * @throws IOException if the file cannot be created
+     */
+    public VerdictReportWriter(File file) throws IOException {
+        this.file = file;
+        this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        this.thread = new Thread(this::drain, "verdict-report-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queue an outcome, ignored once writing failed.
+     *
+     * @param outcome the outcome of an entity
+     */
+    public void write(EntityOutcome outcome) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            queue.put(outcome);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Wait for the queued outcomes to be written and close the file.
+     *
+     * @throws IOException if an outcome could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return number of outcomes written, valid after {@link #close()}
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    private void drain() {
+        StringBuilder line = new StringBuilder(256);
+        try {
+            EntityOutcome outcome;
+            while ((outcome = queue.take()) != END) {
+                line.setLength(0);
+                outcome.appendJson(line);
+                writer.append(line).append('\n');
+                written++;
+            }
+            writer.flush();
+        } catch (IOException e) {
+            failure = e;
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+public class CheckingPipelineTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CheckingPipelineTest.class);
+    private static final SpatialThresholds THRESHOLDS = new SpatialThresholds(0.001, 0.0001, 0.001, 0.001, 0.0001);
+
+    @Test
+    public void metricsRecordTheOutcomeOfEveryEntityState() throws InterruptedException {
+        List<EntityStatePdu> fad = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            fad.add(SpatialComparisonEngineTest.entity(i));
+        }
+        PipelineConfig config = new PipelineConfig("sut", PipelineConfig.ANY, PipelineConfig.ANY, PipelineConfig.ANY,
+                Collections.emptyList(), Collections.emptyMap());
+        CheckingPipeline pipeline = new CheckingPipeline(config, fad, THRESHOLDS, false, 100, LOGGER);
+        pipeline.start();
+        long nanos = 1_000_000_000L;
+        for (int i = 0; i < 3; i++) {
+            pipeline.offer(SpatialComparisonEngineTest.entity(i), nanos + i);
+        }
+        pipeline.offer(SpatialComparisonEngineTest.entity(0), nanos + 3);
+        pipeline.offer(SpatialComparisonEngineTest.entity(1), nanos + 4);
+        pipeline.offer(SpatialComparisonEngineTest.entity(7), nanos + 5);
+
+        assertEquals(CheckingPipeline.FAILED, pipeline.finish());
+        RunMetrics metrics = pipeline.getMetrics();
+        assertEquals(6, metrics.getPdusReceived());
+        assertEquals(2, metrics.getDuplicatesDiscarded());
+        assertEquals(3, metrics.getFadMatches());
+
+        RunMetrics run = new RunMetrics();
+        run.recordPdu(nanos + 6, false);
+        run.add(metrics);
+        assertEquals(7, run.getPdusReceived());
+        assertEquals(2, run.getDuplicatesDiscarded());
+        assertEquals(3, run.getFadMatches());
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ca.drdc.ivct.scenario.EntityKey;
+import edu.nps.moves.dis.EntityID;
+import edu.nps.moves.dis.EntityType;
+
+public class EntityKeyTest {
+
+    @Test
+    public void partsRoundTrip() {
+        long key = EntityKey.of(65535, 1, 42);
+        assertEquals(65535, EntityKey.site(key));
+        assertEquals(1, EntityKey.application(key));
+        assertEquals(42, EntityKey.entity(key));
+        assertEquals("65535.1.42", EntityKey.toString(key));
+        assertTrue(key >= 0);
+    }
+
+    @Test
+    public void partsAreMaskedTo16Bits() {
+        assertEquals(EntityKey.of(1, 2, 3), EntityKey.of(0x10001, 0x10002, 0x10003));
+        assertEquals(EntityKey.of(0xFFFF, 0xFFFF, 0xFFFF), EntityKey.of(-1, -1, -1));
+        assertTrue(EntityKey.of(-1, -1, -1) >= 0);
+    }
+
+    @Test
+    public void entityIdGivesSameKeyAsParts() {
+        EntityID id = new EntityID();
+        id.setSite(10);
+        id.setApplication(20);
+        id.setEntity(30);
+        assertEquals(EntityKey.of(10, 20, 30), EntityKey.of(id));
+    }
+
+    @Test
+    public void typeKeyKeepsEveryField() {
+        EntityType type = type(1, 2, 225, 4, 5, 6, 7);
+        long typeKey = EntityKey.typeOf(type);
+        assertEquals("1.2.225.4.5.6.7", EntityKey.typeToString(typeKey));
+        assertNotEquals(typeKey, EntityKey.typeOf(type(1, 2, 225, 4, 5, 6, 8)));
+        assertNotEquals(typeKey, EntityKey.typeOf(type(1, 2, 226, 4, 5, 6, 7)));
+        assertEquals("255.255.65535.255.255.255.255",
+                EntityKey.typeToString(EntityKey.typeOf(type(255, 255, 65535, 255, 255, 255, 255))));
+    }
+
+    @Test
+    public void shardsAreBalanced() {
+        int shardCount = 7;
+        int[] counts = new int[shardCount];
+        int entities = 70000;
+        for (int entity = 0; entity < entities; entity++) {
+            int shard = EntityKey.shardOf(EntityKey.of(1, 1, entity), shardCount);
+            assertTrue(shard >= 0 && shard < shardCount);
+            counts[shard]++;
+        }
+        for (int count : counts) {
+            assertTrue("unbalanced shard: " + count, Math.abs(count - entities / shardCount) < entities / shardCount / 10);
+        }
+    }
+
+    @Test
+    public void singleShardOwnsEverything() {
+        assertEquals(0, EntityKey.shardOf(EntityKey.of(65535, 65535, 65535), 1));
+    }
+
+    private static EntityType type(int kind, int domain, int country, int category, int subcategory, int spec,
+            int extra) {
+        EntityType type = new EntityType();
+        type.setEntityKind((short) kind);
+        type.setDomain((short) domain);
+        type.setCountry(country);
+        type.setCategory((short) category);
+        type.setSubcategory((short) subcategory);
+        type.setSpec((short) spec);
+        type.setExtra((short) extra);
+        return type;
+    }
+}
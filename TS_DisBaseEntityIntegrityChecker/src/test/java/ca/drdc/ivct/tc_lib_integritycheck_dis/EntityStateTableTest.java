@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+public class EntityStateTableTest {
+
+    @Test
+    public void keepsFirstAndLatestStates() {
+        EntityStateTable table = new EntityStateTable(4, 0);
+        EntityStatePdu first = SpatialComparisonEngineTest.entity(1);
+        EntityStatePdu latest = SpatialComparisonEngineTest.entity(1);
+        int slot = table.record(1, true, first, 10);
+        assertEquals(slot, table.record(1, true, latest, 20));
+        assertSame(first, table.getFirst(slot));
+        assertSame(latest, table.getLatest(slot));
+        assertEquals(10, table.getFirstNanos(slot));
+        assertEquals(20, table.getLatestNanos(slot));
+        assertEquals(2, table.getUpdates(slot));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void boundsUnknownEntitiesOnTheirOwn() {
+        EntityStateTable table = new EntityStateTable(2, 2);
+        EntityStatePdu pdu = SpatialComparisonEngineTest.entity(1);
+        for (long key = 100; key < 110; key++) {
+            table.record(key, false, pdu, 0);
+        }
+        assertEquals(2, table.unknownSize());
+        assertEquals(8, table.getOverflow());
+        // the expected entities still fit once the unknown ones reached their bound
+        assertNotEquals(EntityStateTable.NOT_STORED, table.record(1, true, pdu, 0));
+        assertNotEquals(EntityStateTable.NOT_STORED, table.record(2, true, pdu, 0));
+        assertEquals(EntityStateTable.NOT_STORED, table.record(110, false, pdu, 0));
+        // an unknown entity already stored is still updated
+        assertEquals(2, table.getUpdates(table.record(100, false, pdu, 0)));
+        assertEquals(4, table.size());
+    }
+
+    @Test
+    public void growsPastExpectedEntities() {
+        EntityStateTable table = new EntityStateTable(0, 1000);
+        EntityStatePdu pdu = SpatialComparisonEngineTest.entity(1);
+        for (long key = 0; key < 1000; key++) {
+            assertEquals(key, table.record(key, false, pdu, key));
+        }
+        for (int slot = 0; slot < 1000; slot++) {
+            assertEquals(slot, table.getKey(slot));
+            assertEquals(slot, table.slotOf(slot));
+        }
+        assertEquals(0, table.getOverflow());
+    }
+}
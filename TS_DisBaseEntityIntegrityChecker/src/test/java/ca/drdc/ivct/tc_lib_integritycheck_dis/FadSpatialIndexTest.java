@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import org.junit.Test;
+
+public class FadSpatialIndexTest {
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        FadSpatialIndex index = new FadSpatialIndex(new double[0], new double[0], new double[0]);
+        assertEquals(-1, index.nearest(0, 0, 0, 1, ordinal -> true));
+    }
+
+    @Test
+    public void findsExactLocation() {
+        double[] x = {0, 10, 20};
+        double[] y = {0, 10, 20};
+        double[] z = {0, 10, 20};
+        FadSpatialIndex index = new FadSpatialIndex(x, y, z);
+        assertEquals(1, index.nearest(10, 10, 10, 0, ordinal -> true));
+        assertEquals(-1, index.nearest(15, 15, 15, 1, ordinal -> true));
+    }
+
+    @Test
+    public void distanceIsBoundedOnEachAxis() {
+        FadSpatialIndex index = new FadSpatialIndex(new double[] {0}, new double[] {0}, new double[] {0});
+        assertEquals(0, index.nearest(1, 1, 1, 1, ordinal -> true));
+        assertEquals(-1, index.nearest(1.5, 0, 0, 1, ordinal -> true));
+    }
+
+    @Test
+    public void skipsRejectedCandidates() {
+        double[] x = {0, 1, 2};
+        double[] y = new double[3];
+        double[] z = new double[3];
+        FadSpatialIndex index = new FadSpatialIndex(x, y, z);
+        assertEquals(0, index.nearest(0, 0, 0, 5, ordinal -> true));
+        assertEquals(1, index.nearest(0, 0, 0, 5, ordinal -> ordinal != 0));
+        assertEquals(-1, index.nearest(0, 0, 0, 5, ordinal -> false));
+    }
+
+    @Test
+    public void matchesBruteForceOnRandomLocations() {
+        Random random = new Random(3);
+        int size = 5000;
+        double[] x = new double[size];
+        double[] y = new double[size];
+        double[] z = new double[size];
+        for (int i = 0; i < size; i++) {
+            // geocentric coordinates around the earth surface, with some shared locations
+            x[i] = i % 10 == 0 && i > 0 ? x[i - 1] : 4_000_000 + random.nextDouble() * 10_000;
+            y[i] = i % 10 == 0 && i > 0 ? y[i - 1] : -2_000_000 + random.nextDouble() * 10_000;
+            z[i] = i % 10 == 0 && i > 0 ? z[i - 1] : 4_500_000 + random.nextDouble() * 10_000;
+        }
+        FadSpatialIndex index = new FadSpatialIndex(x.clone(), y.clone(), z.clone());
+        IntPredicate odd = ordinal -> ordinal % 2 == 1;
+        for (int query = 0; query < 2000; query++) {
+            double qx = 4_000_000 + random.nextDouble() * 10_000;
+            double qy = -2_000_000 + random.nextDouble() * 10_000;
+            double qz = 4_500_000 + random.nextDouble() * 10_000;
+            double maxAxisDistance = random.nextDouble() * 500;
+            int found = index.nearest(qx, qy, qz, maxAxisDistance, odd);
+            int expected = bruteForce(x, y, z, qx, qy, qz, maxAxisDistance, odd);
+            if (expected < 0) {
+                assertEquals(-1, found);
+            } else {
+                // ties may resolve to another ordinal at the same distance
+                assertEquals(distanceSquared(x, y, z, expected, qx, qy, qz),
+                        distanceSquared(x, y, z, found, qx, qy, qz), 0);
+                assertEquals(1, found % 2);
+            }
+        }
+    }
+
+    private static int bruteForce(double[] x, double[] y, double[] z, double qx, double qy, double qz,
+            double maxAxisDistance, IntPredicate candidate) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < x.length; i++) {
+            if (Math.abs(x[i] - qx) > maxAxisDistance || Math.abs(y[i] - qy) > maxAxisDistance
+                    || Math.abs(z[i] - qz) > maxAxisDistance || !candidate.test(i)) {
+                continue;
+            }
+            double distance = distanceSquared(x, y, z, i, qx, qy, qz);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static double distanceSquared(double[] x, double[] y, double[] z, int i, double qx, double qy,
+            double qz) {
+        return (x[i] - qx) * (x[i] - qx) + (y[i] - qy) * (y[i] - qy) + (z[i] - qz) * (z[i] - qz);
+    }
+}
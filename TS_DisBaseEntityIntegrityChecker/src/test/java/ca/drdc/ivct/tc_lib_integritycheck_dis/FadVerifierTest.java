@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+public class FadVerifierTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FadVerifierTest.class);
+    private static final SpatialThresholds THRESHOLDS = new SpatialThresholds(0.001, 0.0001, 0.001, 0.001, 0.0001);
+
+    @Test
+    public void passesWhenEveryFadEntityMatches() {
+        for (boolean compareOnArrival : new boolean[] {false, true}) {
+            FadVerifier verifier = new FadVerifier(fad(10), THRESHOLDS, compareOnArrival, LOGGER);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(FadVerifier.FAD_MATCH, verifier.accept(entity(i)));
+            }
+            assertTrue(verifier.isComplete());
+            assertTrue(verifier.judge());
+            assertEquals(0, verifier.getFailedCount());
+            assertEquals(10, verifier.getReceivedCount());
+        }
+    }
+
+    @Test
+    public void laterInstancesAreDuplicates() {
+        FadVerifier verifier = new FadVerifier(fad(2), THRESHOLDS, false, LOGGER);
+        assertEquals(FadVerifier.FAD_MATCH, verifier.accept(entity(0)));
+        assertEquals(FadVerifier.DUPLICATE, verifier.accept(entity(0)));
+        assertEquals(FadVerifier.UNKNOWN, verifier.accept(entity(5)));
+        assertEquals(FadVerifier.DUPLICATE, verifier.accept(entity(5)));
+        assertEquals(4, verifier.getReceivedCount());
+        assertEquals(2, verifier.getDistinctReceivedCount());
+    }
+
+    @Test
+    public void entityNotInTheFadFails() {
+        FadVerifier verifier = new FadVerifier(fad(2), THRESHOLDS, false, LOGGER);
+        verifier.accept(entity(0));
+        verifier.accept(entity(1));
+        assertEquals(FadVerifier.UNKNOWN, verifier.accept(entity(2)));
+        assertFalse(verifier.judge());
+        assertEquals(1, verifier.getUnknownCount());
+        assertEquals(0, verifier.getFailedCount());
+    }
+
+    @Test
+    public void fadEntityNotReceivedFails() {
+        FadVerifier verifier = new FadVerifier(fad(3), THRESHOLDS, false, LOGGER);
+        verifier.accept(entity(0));
+        verifier.accept(entity(1));
+        assertFalse(verifier.isComplete());
+        assertFalse(verifier.judge());
+        assertEquals(1, verifier.getNotReceivedCount());
+        assertEquals(1, verifier.getFailedCount());
+    }
+
+    @Test
+    public void completesEarlyOnTheFirstMismatchWhenComparingOnArrival() {
+        FadVerifier verifier = new FadVerifier(fad(10), THRESHOLDS, true, LOGGER);
+        verifier.accept(entity(0));
+        assertFalse(verifier.isComplete());
+        verifier.accept(moved(1));
+        assertTrue(verifier.isComplete());
+
+        // in batch mode only an entity not in the FAD ends the wait early
+        FadVerifier batch = new FadVerifier(fad(10), THRESHOLDS, false, LOGGER);
+        batch.accept(moved(1));
+        assertFalse(batch.isComplete());
+        batch.accept(entity(10));
+        assertTrue(batch.isComplete());
+    }
+
+    @Test
+    public void firstInstanceDecidesTheOutcome() {
+        for (boolean compareOnArrival : new boolean[] {false, true}) {
+            FadVerifier verifier = new FadVerifier(fad(1), THRESHOLDS, compareOnArrival, LOGGER);
+            EntityStatePdu wrongType = entity(0);
+            wrongType.getEntityType().setCategory((short) 2);
+            assertEquals(FadVerifier.FAD_MATCH, verifier.accept(wrongType));
+            // a later correct instance does not overwrite the type failure
+            assertEquals(FadVerifier.DUPLICATE, verifier.accept(entity(0)));
+            assertFalse(verifier.judge());
+            assertEquals(1, verifier.getFailedCount());
+        }
+    }
+
+    @Test
+    public void incrementalAndBatchJudgmentsAgree() {
+        List<EntityStatePdu> fad = fad(200);
+        List<EntityStatePdu> received = new ArrayList<>();
+        for (int i = 0; i < 210; i++) {
+            if (i % 17 == 0) {
+                // not received
+                continue;
+            }
+            EntityStatePdu pdu = i % 11 == 0 ? moved(i) : entity(i);
+            if (i % 13 == 0) {
+                pdu.getEntityType().setSpec((short) 9);
+            }
+            if (i % 7 == 0) {
+                pdu.getEntityOrientation().setPsi(pdu.getEntityOrientation().getPsi() + 0.01f);
+            }
+            received.add(pdu);
+            received.add(i % 2 == 0 ? moved(i) : entity(i));
+        }
+        FadVerifier batch = new FadVerifier(fad, THRESHOLDS, false, LOGGER);
+        FadVerifier incremental = new FadVerifier(fad, THRESHOLDS, true, LOGGER);
+        for (EntityStatePdu pdu : received) {
+            assertEquals(batch.accept(pdu), incremental.accept(pdu));
+        }
+        assertEquals(batch.judge(), incremental.judge());
+        assertEquals(batch.getFailedCount(), incremental.getFailedCount());
+        assertEquals(batch.getNotReceivedCount(), incremental.getNotReceivedCount());
+        assertEquals(batch.getUnknownCount(), incremental.getUnknownCount());
+        assertEquals(batch.getWarningCount(), incremental.getWarningCount());
+        // 200..209 except 204, which is never sent
+        assertEquals(9, batch.getUnknownCount());
+    }
+
+    @Test
+    public void entitiesOutsideOfTheSampleAreNotCounted() {
+        FadVerifier verifier = new FadVerifier(fad(100), THRESHOLDS, false, LOGGER);
+        verifier.setSample(10, 7, 0.95);
+        int sampled = 0;
+        for (int i = 0; i < 100; i++) {
+            EntityStatePdu pdu = i % 2 == 0 ? moved(i) : entity(i);
+            if (verifier.accept(pdu) != FadVerifier.NOT_SAMPLED) {
+                sampled++;
+            }
+        }
+        assertEquals(10, sampled);
+        assertEquals(10, verifier.getReceivedCount());
+        assertFalse(verifier.judge());
+        int failed = verifier.getFailedCount();
+        assertTrue(failed > 0 && failed < 10);
+        assertEquals(failed, verifier.getSampleEstimate().getMismatches());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAConfidenceOfOne() {
+        new FadVerifier(fad(10), THRESHOLDS, false, LOGGER).setSample(5, 7, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAFadListingAnEntityTwice() {
+        List<EntityStatePdu> fad = fad(3);
+        fad.add(entity(1));
+        new FadVerifier(fad, THRESHOLDS, false, LOGGER);
+    }
+
+    private static List<EntityStatePdu> fad(int size) {
+        List<EntityStatePdu> fad = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            fad.add(entity(i));
+        }
+        return fad;
+    }
+
+    private static EntityStatePdu entity(int index) {
+        return SpatialComparisonEngineTest.entity(index);
+    }
+
+    /**
+     * @return the entity moved out of the world location threshold
+     */
+    private static EntityStatePdu moved(int index) {
+        EntityStatePdu pdu = entity(index);
+        pdu.getEntityLocation().setX(pdu.getEntityLocation().getX() + 1);
+        return pdu;
+    }
+}
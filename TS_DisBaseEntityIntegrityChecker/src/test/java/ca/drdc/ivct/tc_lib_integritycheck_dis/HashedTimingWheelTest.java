@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HashedTimingWheelTest {
+
+    private static final long TICK = 100;
+
+    @Test
+    public void expiresInDeadlineOrder() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8, TICK, 4, 0);
+        wheel.schedule(0, 3 * TICK);
+        wheel.schedule(1, TICK);
+        wheel.schedule(2, 2 * TICK);
+        List<Integer> expired = new ArrayList<>();
+        assertEquals(3, wheel.advance(3 * TICK, expired::add));
+        assertEquals(Arrays.asList(1, 2, 0), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void deadlinesAreRoundedUpToTheNextTick() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8, TICK, 1, 0);
+        wheel.schedule(0, TICK + 1);
+        assertEquals(0, wheel.advance(TICK + 50, id -> { }));
+        assertEquals(1, wheel.advance(2 * TICK, id -> { }));
+    }
+
+    @Test
+    public void keepsDeadlinesOfLaterRounds() {
+        HashedTimingWheel wheel = new HashedTimingWheel(4, TICK, 2, 0);
+        wheel.schedule(0, 2 * TICK);
+        // same bucket, one round later
+        wheel.schedule(1, 6 * TICK);
+        List<Integer> expired = new ArrayList<>();
+        wheel.advance(5 * TICK, expired::add);
+        assertEquals(Arrays.asList(0), expired);
+        assertTrue(wheel.isScheduled(1));
+        wheel.advance(6 * TICK, expired::add);
+        assertEquals(Arrays.asList(0, 1), expired);
+    }
+
+    @Test
+    public void rescheduleReplacesAndCancelRemoves() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8, TICK, 3, 0);
+        wheel.schedule(0, TICK);
+        wheel.schedule(1, TICK);
+        wheel.schedule(2, TICK);
+        wheel.schedule(0, 5 * TICK);
+        wheel.cancel(1);
+        assertFalse(wheel.isScheduled(1));
+        assertEquals(2, wheel.size());
+        List<Integer> expired = new ArrayList<>();
+        wheel.advance(TICK, expired::add);
+        assertEquals(Arrays.asList(2), expired);
+        wheel.advance(5 * TICK, expired::add);
+        assertEquals(Arrays.asList(2, 0), expired);
+    }
+
+    @Test
+    public void callbackMayScheduleTheExpiredIdentifierAgain() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8, TICK, 1, 0);
+        wheel.schedule(0, TICK);
+        int[] count = new int[1];
+        wheel.advance(10 * TICK, id -> {
+            count[0]++;
+            wheel.schedule(id, 20 * TICK);
+        });
+        assertEquals(1, count[0]);
+        assertTrue(wheel.isScheduled(0));
+    }
+}
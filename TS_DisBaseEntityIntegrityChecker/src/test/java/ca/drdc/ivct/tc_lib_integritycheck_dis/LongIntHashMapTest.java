@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ca.drdc.ivct.scenario.EntityKey;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void getReturnsNoValueForMissingKey() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(42));
+        assertFalse(map.containsKey(0));
+    }
+
+    @Test
+    public void putReplacesAndReturnsPreviousValue() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertEquals(LongIntHashMap.NO_VALUE, map.put(7, 1));
+        assertEquals(1, map.put(7, 2));
+        assertEquals(2, map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void putIfAbsentKeepsFirstValue() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertEquals(LongIntHashMap.NO_VALUE, map.putIfAbsent(7, 1));
+        assertEquals(1, map.putIfAbsent(7, 2));
+        assertEquals(1, map.get(7));
+    }
+
+    @Test
+    public void growsPastExpectedSize() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long key = EntityKey.of(random.nextInt(0x10000), random.nextInt(0x10000), random.nextInt(0x10000));
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void consecutiveEntityNumbersAreFound() {
+        LongIntHashMap map = new LongIntHashMap(1000);
+        for (int entity = 0; entity < 1000; entity++) {
+            map.put(EntityKey.of(1, 1, entity), entity);
+        }
+        for (int entity = 0; entity < 1000; entity++) {
+            assertEquals(entity, map.get(EntityKey.of(1, 1, entity)));
+        }
+        assertTrue(map.containsKey(EntityKey.of(1, 1, 999)));
+        assertFalse(map.containsKey(EntityKey.of(1, 2, 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeKey() {
+        new LongIntHashMap().put(-1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeValue() {
+        new LongIntHashMap().put(1, -1);
+    }
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ca.drdc.ivct.scenario.EntityKey;
+import edu.nps.moves.dis.EntityStatePdu;
+
+public class PduCaptureTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsRoundTrip() throws IOException {
+        File file = folder.newFile("capture.dis");
+        try (PduCaptureWriter writer = new PduCaptureWriter(file)) {
+            for (int i = 0; i < 100; i++) {
+                writer.append(1000L + i, SpatialComparisonEngineTest.entity(i));
+            }
+            assertEquals(100, writer.getRecordCount());
+        }
+        List<EntityStatePdu> pdus = new ArrayList<>();
+        List<Long> times = new ArrayList<>();
+        try (PduCaptureReader reader = new PduCaptureReader(file)) {
+            assertEquals(100, reader.replay((pdu, receiveNanos) -> {
+                pdus.add(pdu);
+                times.add(receiveNanos);
+            }));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1000L + i, times.get(i).longValue());
+            assertEquals(EntityKey.of(1, 2, i), EntityKey.of(pdus.get(i).getEntityID()));
+            assertEquals(4_000_000 + i, pdus.get(i).getEntityLocation().getX(), 0);
+        }
+    }
+
+    @Test
+    public void recordsCrossRegions() throws IOException {
+        File file = folder.newFile("large.dis");
+        EntityStatePdu pdu = SpatialComparisonEngineTest.entity(1);
+        int recordSize = PduCaptureWriter.RECORD_HEADER_SIZE + pdu.getMarshalledSize();
+        long records = 2L * PduCaptureWriter.REGION_SIZE / recordSize + 10;
+        try (PduCaptureWriter writer = new PduCaptureWriter(file)) {
+            for (long i = 0; i < records; i++) {
+                writer.append(i, pdu);
+            }
+        }
+        long[] next = {0};
+        try (PduCaptureReader reader = new PduCaptureReader(file)) {
+            assertEquals(records, reader.replay((replayed, receiveNanos) -> {
+                assertEquals(next[0]++, receiveNanos);
+            }));
+        }
+    }
+
+    @Test
+    public void captureNotClosedEndsAtLastRecord() throws IOException {
+        File file = folder.newFile("open.dis");
+        PduCaptureWriter writer = new PduCaptureWriter(file);
+        try {
+            writer.append(1, SpatialComparisonEngineTest.entity(1));
+            writer.append(2, SpatialComparisonEngineTest.entity(2));
+            try (PduCaptureReader reader = new PduCaptureReader(file)) {
+                assertEquals(2, reader.replay((pdu, receiveNanos) -> { }));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void corruptLengthFails() throws IOException {
+        // larger than a region, so that the corrupt record is not at the end of the file
+        File file = capture(PduCaptureWriter.REGION_SIZE / recordSize() + 10);
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            // length of the second record
+            raw.seek(PduCaptureWriter.HEADER_SIZE + recordSize() + Long.BYTES);
+            raw.writeInt(PduCaptureWriter.REGION_SIZE);
+        }
+        assertReplayFails(file);
+    }
+
+    @Test(timeout = 10000)
+    public void lengthPastEndOfFileFails() throws IOException {
+        File file = capture(3);
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(PduCaptureWriter.HEADER_SIZE + 2 * recordSize() + Long.BYTES);
+            raw.writeInt(PduCaptureWriter.REGION_SIZE / 2);
+        }
+        assertReplayFails(file);
+    }
+
+    @Test(timeout = 10000)
+    public void truncatedRecordFails() throws IOException {
+        File file = capture(3);
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(raw.length() - 1);
+        }
+        assertReplayFails(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other.csv");
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.writeBytes("entityId,entityType\n");
+        }
+        new PduCaptureReader(file).close();
+    }
+
+    private File capture(int records) throws IOException {
+        File file = folder.newFile();
+        try (PduCaptureWriter writer = new PduCaptureWriter(file)) {
+            for (int i = 0; i < records; i++) {
+                writer.append(i, SpatialComparisonEngineTest.entity(i));
+            }
+        }
+        return file;
+    }
+
+    private static int recordSize() {
+        return PduCaptureWriter.RECORD_HEADER_SIZE + SpatialComparisonEngineTest.entity(0).getMarshalledSize();
+    }
+
+    private static void assertReplayFails(File file) throws IOException {
+        try (PduCaptureReader reader = new PduCaptureReader(file)) {
+            reader.replay((pdu, receiveNanos) -> { });
+            fail("replay of a damaged capture should fail");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
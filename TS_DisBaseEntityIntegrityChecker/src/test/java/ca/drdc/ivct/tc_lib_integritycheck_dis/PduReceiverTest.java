@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+public class PduReceiverTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PduReceiverTest.class);
+    private static final long TIMEOUT_MS = 5000;
+
+    private int port;
+    private PduReceiver receiver;
+    private DatagramSocket sender;
+
+    @Before
+    public void open() throws IOException {
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        receiver = new PduReceiver(port, PduReceiver.ANY_EXERCISE, LOGGER);
+        sender = new DatagramSocket();
+    }
+
+    @After
+    public void close() throws IOException {
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    public void splitsBundledPdus() throws Exception {
+        send(SpatialComparisonEngineTest.entity(1), SpatialComparisonEngineTest.entity(2),
+                SpatialComparisonEngineTest.entity(3));
+        List<EntityStatePdu> received = receive(3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, received.get(i).getEntityID().getEntity());
+        }
+        assertEquals(1, receiver.getDatagramCount());
+    }
+
+    @Test
+    public void dropsOtherPdusOfABundle() throws Exception {
+        EntityStatePdu other = SpatialComparisonEngineTest.entity(2);
+        other.setPduType((short) 2);
+        send(SpatialComparisonEngineTest.entity(1), other, SpatialComparisonEngineTest.entity(3));
+        List<EntityStatePdu> received = receive(2);
+        assertEquals(1, received.get(0).getEntityID().getEntity());
+        assertEquals(3, received.get(1).getEntityID().getEntity());
+        assertEquals(1, receiver.getFilteredCount());
+    }
+
+    @Test
+    public void keepsThePdusBeforeATruncatedOne() throws Exception {
+        byte[] first = SpatialComparisonEngineTest.entity(1).marshal();
+        byte[] second = SpatialComparisonEngineTest.entity(2).marshal();
+        ByteBuffer datagram = ByteBuffer.allocate(first.length + second.length / 2);
+        datagram.put(first).put(second, 0, second.length / 2);
+        sender.send(new DatagramPacket(datagram.array(), datagram.capacity(), InetAddress.getLoopbackAddress(), port));
+        assertEquals(1, receive(1).get(0).getEntityID().getEntity());
+        assertEquals(1, receiver.getMalformedCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void ownsItsPort() throws IOException {
+        new PduReceiver(port, PduReceiver.ANY_EXERCISE, LOGGER).close();
+    }
+
+    private void send(EntityStatePdu... pdus) throws IOException {
+        ByteBuffer datagram = ByteBuffer.allocate(8192);
+        for (EntityStatePdu pdu : pdus) {
+            datagram.put(pdu.marshal());
+        }
+        sender.send(new DatagramPacket(datagram.array(), datagram.position(), InetAddress.getLoopbackAddress(), port));
+    }
+
+    private List<EntityStatePdu> receive(int count) throws InterruptedException {
+        List<EntityStatePdu> received = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (received.size() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(received.size() + " of " + count + " entity states received");
+            }
+            receiver.drain((pdu, receiveNanos) -> received.add(pdu));
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        receiver.drain((pdu, receiveNanos) -> received.add(pdu));
+        assertEquals(count, received.size());
+        return received;
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.nps.moves.dis.EntityStatePdu;
+
+public class SampleEstimateTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SampleEstimateTest.class);
+    private static final SpatialThresholds THRESHOLDS = new SpatialThresholds(0.001, 0.0001, 0.001, 0.001, 0.0001);
+    private static final double TOLERANCE = 1e-3;
+
+    @Test
+    public void normalQuantileOfUsualConfidences() {
+        assertEquals(1.6449, SampleEstimate.normalQuantile(0.95), TOLERANCE);
+        assertEquals(1.9600, SampleEstimate.normalQuantile(0.975), TOLERANCE);
+        assertEquals(2.5758, SampleEstimate.normalQuantile(0.995), TOLERANCE);
+        assertEquals(-1.9600, SampleEstimate.normalQuantile(0.025), TOLERANCE);
+    }
+
+    @Test
+    public void wilsonBoundsOfASampleWithMismatches() {
+        SampleEstimate estimate = new SampleEstimate(100, 10, 10000, 0.95, 1);
+        assertEquals(0.1, estimate.getRate(), 0);
+        assertEquals(0.0552, estimate.getLower(), TOLERANCE);
+        assertEquals(0.1744, estimate.getUpper(), TOLERANCE);
+    }
+
+    @Test
+    public void upperBoundWithoutMismatch() {
+        SampleEstimate estimate = new SampleEstimate(100, 0, 10000, 0.95, 1);
+        assertEquals(0, estimate.getLower(), 0);
+        // z^2 / (n + z^2) when no mismatch is found
+        assertEquals(1.96 * 1.96 / (100 + 1.96 * 1.96), estimate.getUpper(), TOLERANCE);
+    }
+
+    @Test
+    public void emptySampleRulesNothingOut() {
+        SampleEstimate estimate = new SampleEstimate(0, 0, 10000, 0.95, 1);
+        assertEquals(0, estimate.getLower(), 0);
+        assertEquals(1, estimate.getUpper(), 0);
+    }
+
+    @Test
+    public void sameSeedJudgesTheSameSample() {
+        List<EntityStatePdu> fad = fad(1000);
+        assertEquals(sampled(fad, 42), sampled(fad, 42));
+        assertFalse(sampled(fad, 42).equals(sampled(fad, 43)));
+    }
+
+    @Test
+    public void estimatesFromTheSampledMismatches() {
+        List<EntityStatePdu> fad = fad(1000);
+        List<Integer> sampled = sampled(fad, 7);
+        FadVerifier verifier = new FadVerifier(fad, THRESHOLDS, false, LOGGER);
+        verifier.setSample(50, 7, 0.95);
+        assertTrue(verifier.isSampling());
+        assertEquals(50, verifier.getJudgedCount());
+        for (int i = 0; i < sampled.size(); i++) {
+            EntityStatePdu received = SpatialComparisonEngineTest.entity(sampled.get(i));
+            if (i < 5) {
+                received.getEntityLocation().setX(0);
+            }
+            assertEquals(FadVerifier.FAD_MATCH, verifier.accept(received));
+        }
+        assertTrue(verifier.isComplete());
+        assertFalse(verifier.judge());
+        SampleEstimate estimate = verifier.getSampleEstimate();
+        assertEquals(50, estimate.getSampleSize());
+        assertEquals(5, estimate.getMismatches());
+        assertEquals(0.1, estimate.getRate(), 0);
+        assertTrue(estimate.getLower() < 0.1 && estimate.getUpper() > 0.1);
+    }
+
+    private static List<EntityStatePdu> fad(int size) {
+        List<EntityStatePdu> fad = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            fad.add(SpatialComparisonEngineTest.entity(i));
+        }
+        return fad;
+    }
+
+    private static List<Integer> sampled(List<EntityStatePdu> fad, long seed) {
+        FadVerifier verifier = new FadVerifier(fad, THRESHOLDS, false, LOGGER);
+        verifier.setSample(50, seed, 0.95);
+        List<Integer> sampled = new ArrayList<>();
+        for (int i = 0; i < fad.size(); i++) {
+            if (verifier.accept(SpatialComparisonEngineTest.entity(i)) != FadVerifier.NOT_SAMPLED) {
+                sampled.add(i);
+            }
+        }
+        assertEquals(50, sampled.size());
+        return sampled;
+    }
+}
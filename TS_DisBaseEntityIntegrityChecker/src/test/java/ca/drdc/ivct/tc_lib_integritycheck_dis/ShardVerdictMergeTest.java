@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fraunhofer.iosb.tc_lib.TcFailed;
+import de.fraunhofer.iosb.tc_lib.TcInconclusive;
+
+public class ShardVerdictMergeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardVerdictMergeTest.class);
+    private static final String RUN = "run-2";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File shardDir;
+    private File combinedReport;
+
+    @Before
+    public void createDirectories() throws IOException {
+        shardDir = folder.newFolder("shards");
+        combinedReport = new File(folder.getRoot(), "combined.ndjson");
+    }
+
+    @Test
+    public void passesWhenEveryShardPassed() throws IOException {
+        write(RUN, 0, 2, CheckingPipeline.PASSED, "{\"id\":\"1.2.3\"}\n");
+        write(RUN, 1, 2, CheckingPipeline.PASSED, "{\"id\":\"1.2.4\"}\n");
+        ShardVerdictMerge merge = new ShardVerdictMerge(shardDir, RUN, 2, LOGGER);
+        assertTrue(merge.isComplete());
+        assertEquals(CheckingPipeline.PASSED, merge.merge(combinedReport));
+        assertEquals(Arrays.asList("{\"id\":\"1.2.3\"}", "{\"id\":\"1.2.4\"}"),
+                Files.readAllLines(combinedReport.toPath(), StandardCharsets.UTF_8));
+        // the merged partial verdicts are consumed
+        assertFalse(new File(shardDir, ShardVerdict.fileName(RUN, 0, 2)).exists());
+        assertFalse(new File(shardDir, ShardVerdict.fileName(RUN, 1, 2)).exists());
+    }
+
+    @Test
+    public void keepsThePartialVerdictsOfAnInconclusiveMerge() throws IOException {
+        write(RUN, 0, 2, CheckingPipeline.PASSED, "");
+        File first = new File(shardDir, ShardVerdict.fileName(RUN, 0, 2));
+        ShardVerdictMerge merge = new ShardVerdictMerge(shardDir, RUN, 2, LOGGER);
+        assertEquals(CheckingPipeline.INCONCLUSIVE, merge.merge(combinedReport));
+        assertTrue(first.exists());
+
+        // run again once the missing shard is done
+        write(RUN, 1, 2, CheckingPipeline.PASSED, "");
+        ShardVerdictMerge again = new ShardVerdictMerge(shardDir, RUN, 2, LOGGER);
+        assertTrue(again.isComplete());
+        assertEquals(CheckingPipeline.PASSED, again.merge(combinedReport));
+        assertEquals(2, again.getJudged());
+        assertFalse(first.exists());
+    }
+
+    @Test
+    public void isInconclusiveWhenNoEntityWasJudged() throws IOException {
+        write(RUN, 0, 2, CheckingPipeline.PASSED, "", null);
+        write(RUN, 1, 2, CheckingPipeline.PASSED, "", null);
+        ShardVerdictMerge merge = new ShardVerdictMerge(shardDir, RUN, 2, LOGGER);
+        assertEquals(CheckingPipeline.INCONCLUSIVE, merge.merge(combinedReport));
+        assertEquals(0, merge.getJudged());
+        assertTrue(merge.getInconclusive().isEmpty());
+        assertTrue(new File(shardDir, ShardVerdict.fileName(RUN, 0, 2)).exists());
+    }
+
+    @Test(expected = TcInconclusive.class)
+    public void judgeRejectsARunWithoutJudgedEntities() throws Exception {
+        write(RUN, 0, 2, CheckingPipeline.PASSED, "", null);
+        write(RUN, 1, 2, CheckingPipeline.PASSED, "", null);
+        new ShardVerdictMerge(shardDir, RUN, 2, LOGGER).judge(combinedReport);
+    }
+
+    @Test(expected = TcFailed.class)
+    public void judgeFailsWhenAShardFailed() throws Exception {
+        write(RUN, 0, 2, CheckingPipeline.FAILED, "");
+        write(RUN, 1, 2, CheckingPipeline.PASSED, "");
+        new ShardVerdictMerge(shardDir, RUN, 2, LOGGER).judge(combinedReport);
+    }
+
+    @Test(expected = TcInconclusive.class)
+    public void mergeNeedsSeveralShards() throws TcInconclusive {
+        System.setProperty(IntegrityCheckOptions.SHARD_COUNT, "1");
+        System.setProperty(IntegrityCheckOptions.SHARD_RUN_ID, RUN);
+        try {
+            ShardVerdictMerge.fromOptions(LOGGER);
+        } finally {
+            System.clearProperty(IntegrityCheckOptions.SHARD_COUNT);
+            System.clearProperty(IntegrityCheckOptions.SHARD_RUN_ID);
+        }
+    }
+
+    @Test
+    public void failsWhenAShardFailed() throws IOException {
+        write(RUN, 0, 2, CheckingPipeline.FAILED, "");
+        write(RUN, 1, 2, CheckingPipeline.INCONCLUSIVE, "");
+        ShardVerdictMerge merge = new ShardVerdictMerge(shardDir, RUN, 2, LOGGER);
+        assertEquals(CheckingPipeline.FAILED, merge.merge(combinedReport));
+        assertEquals(Collections.singletonList(0), merge.getFailed());
+        assertEquals(Collections.singletonList(1), merge.getInconclusive());
+    }
+
+    @Test
+    public void ignoresThePartialVerdictsOfAnotherRun() throws IOException {
+        File stale = write("run-1", 0, 2, CheckingPipeline.PASSED, "");
+        write("run-1", 1, 2, CheckingPipeline.PASSED, "");
+        write(RUN, 1, 2, CheckingPipeline.PASSED, "");
+        ShardVerdictMerge merge = new ShardVerdictMerge(shardDir, RUN, 2, LOGGER);
+        assertFalse(merge.isComplete());
+        assertEquals(CheckingPipeline.INCONCLUSIVE, merge.merge(combinedReport));
+        assertEquals(Collections.singletonList(0), merge.getInconclusive());
+        assertTrue(stale.exists());
+    }
+
+    @Test
+    public void rejectsAPartialVerdictOfAnotherShardCount() throws IOException {
+        File file = write(RUN, 0, 3, CheckingPipeline.PASSED, "");
+        write(RUN, 1, 2, CheckingPipeline.PASSED, "");
+        // a verdict of a run of 3 shards under the name of the shard 0 of 2
+        Files.move(file.toPath(), new File(shardDir, ShardVerdict.fileName(RUN, 0, 2)).toPath());
+        ShardVerdictMerge merge = new ShardVerdictMerge(shardDir, RUN, 2, LOGGER);
+        assertTrue(merge.isComplete());
+        assertEquals(CheckingPipeline.INCONCLUSIVE, merge.merge(combinedReport));
+        assertEquals(Collections.singletonList(0), merge.getInconclusive());
+    }
+
+    @Test
+    public void partialVerdictRoundTrip() throws IOException {
+        File file = write(RUN, 1, 4, CheckingPipeline.FAILED, "");
+        ShardVerdict verdict = ShardVerdict.read(file);
+        assertEquals(RUN, verdict.getRunId());
+        assertEquals(1, verdict.getShardIndex());
+        assertEquals(4, verdict.getShardCount());
+        assertEquals(CheckingPipeline.FAILED, verdict.getVerdict());
+        assertArrayEquals(new String[] {new File(folder.getRoot(), RUN + "-1.ndjson").getAbsolutePath()},
+                verdict.getReports().toArray());
+    }
+
+    @Test
+    public void runIdsAreFileNameParts() {
+        assertTrue(ShardVerdict.isValidRunId("nightly-2018.06_1"));
+        assertFalse(ShardVerdict.isValidRunId(null));
+        assertFalse(ShardVerdict.isValidRunId(""));
+        assertFalse(ShardVerdict.isValidRunId("../run"));
+    }
+
+    /**
+     * Write a partial verdict whose shard judged one FAD entity.
+     */
+    private File write(String runId, int shardIndex, int shardCount, String verdict, String report)
+            throws IOException {
+        FadVerifier verifier = new FadVerifier(Collections.singletonList(SpatialComparisonEngineTest.entity(0)),
+                new SpatialThresholds(0.001, 0.0001, 0.001, 0.001, 0.0001), false, LOGGER);
+        verifier.accept(SpatialComparisonEngineTest.entity(0));
+        verifier.judge();
+        return write(runId, shardIndex, shardCount, verdict, report, verifier);
+    }
+
+    private File write(String runId, int shardIndex, int shardCount, String verdict, String report,
+            FadVerifier verifier) throws IOException {
+        File reportFile = new File(folder.getRoot(), runId + "-" + shardIndex + ".ndjson");
+        Files.write(reportFile.toPath(), report.getBytes(StandardCharsets.UTF_8));
+        ShardVerdict shardVerdict = new ShardVerdict(runId, shardIndex, shardCount, verdict);
+        if (verifier != null) {
+            shardVerdict.add(verifier);
+        }
+        shardVerdict.addReport(reportFile);
+        return shardVerdict.write(shardDir);
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SlidingWindowCountersTest {
+
+    private static final long WINDOW = 1000;
+
+    @Test
+    public void incrementOnlyCountsInTheCurrentWindow() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(2, 4, WINDOW, 0);
+        counters.increment(0);
+        counters.increment(0);
+        counters.increment(1);
+        assertEquals(0, counters.getClosedCount());
+        assertEquals(2, counters.getRecent(0));
+        assertEquals(1, counters.getTotal(1));
+    }
+
+    @Test
+    public void reportsTheWindowClosedByAnAdvance() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(2, 4, WINDOW, 0);
+        counters.increment(0);
+        List<long[]> closed = new ArrayList<>();
+        assertEquals(0, counters.advance(WINDOW - 1, (window, number) -> closed.add(window)));
+        assertEquals(1, counters.advance(WINDOW, (window, number) -> closed.add(window)));
+        assertEquals(1, closed.size());
+        assertArrayEquals(new long[] {1, 0}, closed.get(0));
+        assertArrayEquals(new long[] {1, 0}, counters.getLastClosed());
+    }
+
+    @Test
+    public void reportsEveryWindowClosedAtOnce() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(1, 2, WINDOW, 0);
+        counters.increment(0);
+        List<long[]> closed = new ArrayList<>();
+        List<Long> numbers = new ArrayList<>();
+        assertEquals(3, counters.advance(3 * WINDOW + 1, (window, number) -> {
+            closed.add(window);
+            numbers.add(number);
+        }));
+        assertArrayEquals(new long[] {1}, closed.get(0));
+        assertArrayEquals(new long[] {0}, closed.get(1));
+        assertArrayEquals(new long[] {0}, closed.get(2));
+        assertEquals(3, numbers.size());
+        assertEquals(Long.valueOf(1), numbers.get(0));
+        assertEquals(Long.valueOf(3), numbers.get(2));
+        assertEquals(3, counters.getClosedCount());
+        assertEquals(1, counters.getTotal(0));
+    }
+
+    @Test
+    public void keepsOnlyTheLastWindows() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(1, 3, WINDOW, 0);
+        for (int window = 0; window < 10; window++) {
+            counters.advance(window * WINDOW, (closed, number) -> { });
+            counters.increment(0);
+        }
+        assertEquals(3, counters.getRecent(0));
+        assertEquals(10, counters.getTotal(0));
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import ca.drdc.ivct.scenario.EntityAppearance;
+import edu.nps.moves.dis.EntityStatePdu;
+
+public class SpatialComparisonEngineTest {
+
+    private static final SpatialThresholds THRESHOLDS = new SpatialThresholds(0.001, 0.0001, 0.001, 0.001, 0.0001);
+
+    @Test
+    public void identicalStatesMatch() {
+        assertEquals(0, compare(pdu -> { }));
+    }
+
+    @Test
+    public void worldLocationWithinThresholdOnEachAxis() {
+        assertEquals(0, compare(pdu -> {
+            pdu.getEntityLocation().setX(pdu.getEntityLocation().getX() + 0.0009);
+            pdu.getEntityLocation().setY(pdu.getEntityLocation().getY() - 0.0009);
+            pdu.getEntityLocation().setZ(pdu.getEntityLocation().getZ() + 0.0009);
+        }));
+        assertEquals(MismatchFlags.WORLD_LOCATION,
+                compare(pdu -> pdu.getEntityLocation().setZ(pdu.getEntityLocation().getZ() - 0.002)));
+    }
+
+    @Test
+    public void frozenIsTheAppearanceBit() {
+        assertEquals(MismatchFlags.FROZEN,
+                compare(pdu -> pdu.setEntityAppearance(pdu.getEntityAppearance() ^ EntityAppearance.FROZEN_BIT)));
+        // other appearance bits are not compared
+        assertEquals(0, compare(pdu -> pdu.setEntityAppearance(pdu.getEntityAppearance() ^ 1)));
+    }
+
+    @Test
+    public void warningsAreFlaggedSeparately() {
+        int orientation = compare(pdu -> pdu.getEntityOrientation().setPhi(pdu.getEntityOrientation().getPhi() + 0.01f));
+        assertEquals(MismatchFlags.ORIENTATION, orientation);
+        assertEquals(MismatchFlags.VELOCITY,
+                compare(pdu -> pdu.getEntityLinearVelocity().setY(pdu.getEntityLinearVelocity().getY() + 0.01f)));
+        assertEquals(MismatchFlags.DEAD_RECKONING,
+                compare(pdu -> pdu.getDeadReckoningParameters().setDeadReckoningAlgorithm((short) 4)));
+        assertEquals(MismatchFlags.DEAD_RECKONING, compare(pdu -> pdu.getDeadReckoningParameters()
+                .getEntityAngularVelocity().setX(0.01f)));
+    }
+
+    @Test
+    public void compareAllMatchesCompare() {
+        int size = 10000;
+        SpatialColumns fad = new SpatialColumns(size);
+        SpatialColumns received = new SpatialColumns(size);
+        boolean[] present = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            EntityStatePdu pdu = entity(i);
+            fad.set(i, pdu);
+            if (i % 3 == 0) {
+                pdu.getEntityLocation().setX(pdu.getEntityLocation().getX() + 1);
+            }
+            received.set(i, pdu);
+            present[i] = i % 5 != 0;
+        }
+        SpatialComparisonEngine engine = new SpatialComparisonEngine(fad, received, THRESHOLDS);
+        byte[] results = new byte[size];
+        engine.compareAll(present, results);
+        for (int i = 0; i < size; i++) {
+            assertEquals("ordinal " + i, present[i] ? engine.compare(i) : 0, results[i]);
+        }
+    }
+
+    private static int compare(Consumer<EntityStatePdu> change) {
+        SpatialColumns fad = new SpatialColumns(1);
+        SpatialColumns received = new SpatialColumns(1);
+        fad.set(0, entity(7));
+        EntityStatePdu receivedPdu = entity(7);
+        change.accept(receivedPdu);
+        received.set(0, receivedPdu);
+        return new SpatialComparisonEngine(fad, received, THRESHOLDS).compare(0);
+    }
+
+    static EntityStatePdu entity(int index) {
+        EntityStatePdu pdu = new EntityStatePdu();
+        pdu.getEntityID().setSite(1);
+        pdu.getEntityID().setApplication(2);
+        pdu.getEntityID().setEntity(index);
+        pdu.getEntityType().setEntityKind((short) 1);
+        pdu.getEntityType().setDomain((short) 1);
+        pdu.getEntityType().setCountry(225);
+        pdu.getEntityLocation().setX(4_000_000 + index);
+        pdu.getEntityLocation().setY(-2_000_000 - index);
+        pdu.getEntityLocation().setZ(4_500_000);
+        pdu.getEntityOrientation().setPsi(0.5f);
+        pdu.getEntityOrientation().setTheta(0.25f);
+        pdu.getEntityOrientation().setPhi(0.125f);
+        pdu.getEntityLinearVelocity().setX(10);
+        pdu.setEntityAppearance(EntityAppearance.FROZEN_BIT);
+        pdu.getDeadReckoningParameters().setDeadReckoningAlgorithm((short) 2);
+        return pdu;
+    }
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import ca.drdc.ivct.fom.base.BaseEntity;
+import ca.drdc.ivct.fom.utils.BaseEntityCSVReader;
+import ca.drdc.ivct.fom.utils.BaseEntityEqualUtils;
+import ca.drdc.ivct.scenario.EntityAppearance;
+import ca.drdc.ivct.scenario.EntityKey;
+import de.fraunhofer.iosb.tc_lib.converter.DisModelConverter;
+import edu.nps.moves.dis.EntityStatePdu;
+
+/**
+ * The comparison of the {@link SpatialComparisonEngine} in the DIS frame gives
+ * the same result, field by field, as the BaseEntityEqualUtils comparison of the
+ * converted RPR entities that the test case used before, on the sample FAD.
+ */
+public class SpatialComparisonEquivalenceTest {
+
+    private static final File SAMPLE_FAD = new File(
+            "../IVCT_Runtime/IVCTsut/DisEntitySut/TS_DisBaseEntityIntegrityChecker/resources/testcases/baseentity_simple_tc.csv");
+
+    /**
+     * thresholds of the sample TcParam.json
+     */
+    private static final float WORLD_LOCATION = 0.001f;
+    private static final float ORIENTATION = 0.0001f;
+    private static final float VELOCITY = 0.001f;
+    private static final float ACCELERATION = 0.001f;
+    private static final float ANGULAR_VELOCITY = 0.0001f;
+
+    @Test
+    public void sameVerdictAsBaseEntityEqualUtils() throws IOException, ParseException {
+        List<BaseEntity> fad = BaseEntityCSVReader.loadCSVFileToBaseEntityList(
+                Collections.singletonList(SAMPLE_FAD.toURI().toURL()));
+        assertFalse(fad.isEmpty());
+
+        Map<String, Float> thresholdValues = new HashMap<>();
+        thresholdValues.put(SpatialThresholds.WORLD_LOCATION, WORLD_LOCATION);
+        thresholdValues.put(SpatialThresholds.ORIENTATION, ORIENTATION);
+        thresholdValues.put(SpatialThresholds.VELOCITY, VELOCITY);
+        thresholdValues.put(SpatialThresholds.ACCELERATION, ACCELERATION);
+        thresholdValues.put(SpatialThresholds.ANGULAR_VELOCITY, ANGULAR_VELOCITY);
+        BaseEntityEqualUtils equalUtils = new BaseEntityEqualUtils(thresholdValues);
+        SpatialThresholds thresholds = SpatialThresholds.from(thresholdValues);
+
+        for (Map.Entry<String, Consumer<EntityStatePdu>> change : changes().entrySet()) {
+            for (BaseEntity fadEntity : fad) {
+                EntityStatePdu fadPdu = DisModelConverter.rprEntityToDis(fadEntity);
+                EntityStatePdu receivedPdu = DisModelConverter.rprEntityToDis(fadEntity);
+                change.getValue().accept(receivedPdu);
+                BaseEntity receivedEntity = DisModelConverter.disEntityToRpr(receivedPdu);
+
+                SpatialColumns fadColumns = new SpatialColumns(1);
+                SpatialColumns receivedColumns = new SpatialColumns(1);
+                fadColumns.set(0, fadPdu);
+                receivedColumns.set(0, receivedPdu);
+                int mask = new SpatialComparisonEngine(fadColumns, receivedColumns, thresholds).compare(0);
+
+                String message = change.getKey() + " of " + fadEntity.getEntityIdentifier() + ": ";
+                assertEquals(message + "worldLocation", equalUtils.worlLocationEqual(
+                        fadEntity.getSpatialRepresentation().getWorldLocation(),
+                        receivedEntity.getSpatialRepresentation().getWorldLocation()),
+                        (mask & MismatchFlags.WORLD_LOCATION) == 0);
+                assertEquals(message + "frozen", fadEntity.getSpatialRepresentation().isFrozen()
+                        == receivedEntity.getSpatialRepresentation().isFrozen(),
+                        (mask & MismatchFlags.FROZEN) == 0);
+                assertEquals(message + "orientation", equalUtils.orientationEqual(
+                        fadEntity.getSpatialRepresentation().getOrientation(),
+                        receivedEntity.getSpatialRepresentation().getOrientation()),
+                        (mask & MismatchFlags.ORIENTATION) == 0);
+                assertEquals(message + "velocity", equalUtils.velocityEqual(
+                        fadEntity.getSpatialRepresentation().getVelocityVector(),
+                        receivedEntity.getSpatialRepresentation().getVelocityVector()),
+                        (mask & MismatchFlags.VELOCITY) == 0);
+                assertEquals(message + "deadReckoning", equalUtils.baseEntityDeadReckonEqual(
+                        fadEntity.getSpatialRepresentation(), receivedEntity.getSpatialRepresentation()),
+                        (mask & MismatchFlags.DEAD_RECKONING) == 0);
+                assertEquals(message + "entityType", fadEntity.getEntityType().equals(receivedEntity.getEntityType()),
+                        EntityKey.typeOf(fadPdu.getEntityType()) == EntityKey.typeOf(receivedPdu.getEntityType()));
+            }
+        }
+    }
+
+    /**
+     * changes of a received entity, each within or beyond its threshold
+     */
+    private static Map<String, Consumer<EntityStatePdu>> changes() {
+        Map<String, Consumer<EntityStatePdu>> changes = new LinkedHashMap<>();
+        changes.put("no change", pdu -> { });
+        for (double factor : new double[] {0.5, 3}) {
+            double location = factor * WORLD_LOCATION;
+            changes.put("x + " + location, pdu -> pdu.getEntityLocation().setX(pdu.getEntityLocation().getX() + location));
+            changes.put("y - " + location, pdu -> pdu.getEntityLocation().setY(pdu.getEntityLocation().getY() - location));
+            changes.put("z + " + location, pdu -> pdu.getEntityLocation().setZ(pdu.getEntityLocation().getZ() + location));
+            float orientation = (float) (factor * ORIENTATION);
+            changes.put("psi + " + orientation,
+                    pdu -> pdu.getEntityOrientation().setPsi(pdu.getEntityOrientation().getPsi() + orientation));
+            changes.put("phi - " + orientation,
+                    pdu -> pdu.getEntityOrientation().setPhi(pdu.getEntityOrientation().getPhi() - orientation));
+            float velocity = (float) (factor * VELOCITY);
+            changes.put("velocity x + " + velocity,
+                    pdu -> pdu.getEntityLinearVelocity().setX(pdu.getEntityLinearVelocity().getX() + velocity));
+            float acceleration = (float) (factor * ACCELERATION);
+            changes.put("acceleration z + " + acceleration, pdu -> pdu.getDeadReckoningParameters()
+                    .getEntityLinearAcceleration().setZ(
+                            pdu.getDeadReckoningParameters().getEntityLinearAcceleration().getZ() + acceleration));
+            float angularVelocity = (float) (factor * ANGULAR_VELOCITY);
+            changes.put("angular velocity y + " + angularVelocity, pdu -> pdu.getDeadReckoningParameters()
+                    .getEntityAngularVelocity().setY(
+                            pdu.getDeadReckoningParameters().getEntityAngularVelocity().getY() + angularVelocity));
+        }
+        changes.put("frozen toggled",
+                pdu -> pdu.setEntityAppearance(pdu.getEntityAppearance() ^ EntityAppearance.FROZEN_BIT));
+        changes.put("dead reckoning algorithm", pdu -> pdu.getDeadReckoningParameters().setDeadReckoningAlgorithm(
+                (short) (pdu.getDeadReckoningParameters().getDeadReckoningAlgorithm() == 2 ? 4 : 2)));
+        changes.put("entity type extra", pdu -> pdu.getEntityType().setExtra((short) (pdu.getEntityType().getExtra() + 1)));
+        return changes;
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SpatialThresholdsTest {
+
+    @Test
+    public void readsEveryThreshold() {
+        SpatialThresholds thresholds = SpatialThresholds.from(tcParamThresholds());
+        assertEquals(0.001f, thresholds.getWorldLocation(), 0);
+        assertEquals(0.0001f, thresholds.getOrientation(), 0);
+        assertEquals(0.002f, thresholds.getVelocity(), 0);
+        assertEquals(0.003f, thresholds.getAcceleration(), 0);
+        assertEquals(0.0002f, thresholds.getAngularVelocity(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingThreshold() {
+        Map<String, Float> thresholds = tcParamThresholds();
+        thresholds.remove(SpatialThresholds.VELOCITY);
+        SpatialThresholds.from(thresholds);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeThreshold() {
+        Map<String, Float> thresholds = tcParamThresholds();
+        thresholds.put(SpatialThresholds.WORLD_LOCATION, -1f);
+        SpatialThresholds.from(thresholds);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoThresholds() {
+        SpatialThresholds.from(null);
+    }
+
+    @Test
+    public void missingThresholdsAreTheDefaults() {
+        Map<String, Number> pipeline = new HashMap<>();
+        pipeline.put(SpatialThresholds.WORLD_LOCATION, 5);
+        SpatialThresholds thresholds = SpatialThresholds.from(pipeline, tcParamThresholds());
+        assertEquals(5, thresholds.getWorldLocation(), 0);
+        assertEquals(0.0001f, thresholds.getOrientation(), 0);
+        assertEquals(0.0002f, thresholds.getAngularVelocity(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsThresholdMissingFromBoth() {
+        Map<String, Float> defaults = tcParamThresholds();
+        defaults.remove(SpatialThresholds.ACCELERATION);
+        SpatialThresholds.from(new HashMap<String, Number>(), defaults);
+    }
+
+    private static Map<String, Float> tcParamThresholds() {
+        Map<String, Float> thresholds = new HashMap<>();
+        thresholds.put(SpatialThresholds.WORLD_LOCATION, 0.001f);
+        thresholds.put(SpatialThresholds.ORIENTATION, 0.0001f);
+        thresholds.put(SpatialThresholds.VELOCITY, 0.002f);
+        thresholds.put(SpatialThresholds.ACCELERATION, 0.003f);
+        thresholds.put(SpatialThresholds.ANGULAR_VELOCITY, 0.0002f);
+        return thresholds;
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) Her Majesty the Queen in Right of Canada,
+ * as represented by the Minister of National Defence, 2018
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package ca.drdc.ivct.tc_lib_integritycheck_dis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SpscRingTest {
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new SpscRing<Integer>(5).capacity());
+        assertEquals(8, new SpscRing<Integer>(8).capacity());
+        assertEquals(2, new SpscRing<Integer>(0).capacity());
+    }
+
+    @Test
+    public void pollsInOfferOrderAndRejectsWhenFull() {
+        SpscRing<Integer> ring = new SpscRing<>(4);
+        assertNull(ring.poll());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(Integer.valueOf(i), ring.poll());
+        }
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void wrapsAround() {
+        SpscRing<Integer> ring = new SpscRing<>(4);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ring.offer(i));
+            assertTrue(ring.offer(i + 1000));
+            assertEquals(Integer.valueOf(i), ring.poll());
+            assertEquals(Integer.valueOf(i + 1000), ring.poll());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void handsOverEveryElementBetweenTwoThreads() throws InterruptedException {
+        final int count = 1_000_000;
+        SpscRing<Integer> ring = new SpscRing<>(64);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                Integer element = i;
+                while (!ring.offer(element)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        for (int expected = 0; expected < count; expected++) {
+            Integer element;
+            while ((element = ring.poll()) == null) {
+                Thread.yield();
+            }
+            assertEquals(expected, element.intValue());
+        }
+        producer.join();
+        assertNull(ring.poll());
+    }
+}